@@ -47,9 +47,21 @@ public interface RakNet {
 	public static final int MAX_PACKETS_PER_SECOND = 512;
 	public static final int MAX_PACKETS_PER_QUEUE = 512;
 
-	// Split packet size
-	public static final int MAX_SPLITS_PER_QUEUE = 4;
+	// Send queue size, in bytes
+	public static final int SEND_QUEUE_LOW_WATERMARK = 64 * 1024;
+	public static final int SEND_QUEUE_HIGH_WATERMARK = 256 * 1024;
+	public static final int MAX_SEND_QUEUE_BYTES = 8 * 1024 * 1024;
+
+	// Split packet size, the overhead is charged for every split slot
+	public static final int MAX_SPLIT_BYTES = 1024 * 1024;
 	public static final int MAX_SPLIT_COUNT = 128;
+	public static final int SPLIT_SLOT_OVERHEAD = 32;
+
+	// Ordering queue and window sizes, must be a power of two
+	public static final int MAX_ORDERED_PACKETS_PER_CHANNEL = 2048;
+	public static final int RECEIVE_WINDOW_SIZE = 2048;
+	public static final int MESSAGE_WINDOW_SIZE = 32768;
+	public static final int SEND_WINDOW_SIZE = 1024;
 
 	// Time conversion
 	public static final long SERVER_TIMEOUT = 10 * 1000L;
@@ -57,4 +69,35 @@ public interface RakNet {
 	public static final long ONE_MINUTES_MILLIS = 60 * 1000L;
 	public static final long FIVE_MINUTES_MILLIS = 300 * 1000L;
 
+	// Reliability timing
+	public static final long NACK_DELAY = 10L;
+	public static final long INITIAL_RETRANSMISSION_TIMEOUT = 1000L;
+	public static final long MINIMUM_RETRANSMISSION_TIMEOUT = 50L;
+	public static final long MAXIMUM_RETRANSMISSION_TIMEOUT = 5000L;
+	public static final int MAX_RETRANSMISSION_BACKOFF = 6;
+	public static final long SPLIT_TIMEOUT = 5 * 1000L;
+	public static final long CONFIRMATION_TIMEOUT = 10 * 1000L;
+
+	// Congestion window sizes, in packets
+	public static final int INITIAL_CONGESTION_WINDOW = 10;
+	public static final int MINIMUM_CONGESTION_WINDOW = 2;
+	public static final int MAX_CONGESTION_WINDOW = 256;
+
+	// Pacing
+	public static final long PACING_DISABLED = 0L;
+	public static final long PACING_AUTOMATIC = -1L;
+	public static final int PACING_BURST = 2;
+	public static final double PACING_GAIN = 1.25D;
+
+	// Forward error correction, the history must be a power of two
+	public static final int PARITY_DISABLED = 0;
+	public static final int MINIMUM_PARITY_GROUP_SIZE = 2;
+	public static final int MAX_PARITY_GROUP_SIZE = 32;
+	public static final int PARITY_HISTORY_SIZE = 128;
+
+	// Order channel scheduling, the quantum is in bytes per point of weight
+	public static final int DEFAULT_CHANNEL_WEIGHT = 1;
+	public static final int MAX_CHANNEL_WEIGHT = 64;
+	public static final int CHANNEL_QUANTUM = 512;
+
 }
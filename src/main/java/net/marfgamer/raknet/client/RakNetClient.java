@@ -71,6 +71,7 @@ import net.marfgamer.raknet.protocol.raknet.UnconnectedPong;
 import net.marfgamer.raknet.protocol.raknet.UnconnectedServerFull;
 import net.marfgamer.raknet.protocol.raknet.internal.Acknowledge;
 import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.ParityPacket;
 import net.marfgamer.raknet.scheduler.RakNetScheduler;
 import net.marfgamer.raknet.session.ServerSession;
 import net.marfgamer.raknet.session.SessionState;
@@ -515,6 +516,18 @@ public class RakNetClient implements RakNet, MessageIdentifiers {
 		}
 	}
 
+	/**
+	 * Handles a parity packet
+	 * 
+	 * @param parity
+	 * @param sender
+	 */
+	protected void handleParity(ParityPacket parity, InetSocketAddress sender) throws RakNetException {
+		if (this.isServer(sender)) {
+			session.handleParity(parity);
+		}
+	}
+
 	/**
 	 * Broadcasts a packet to the entire local network on the discover port,
 	 * returns <code>true</code> if the packet was able to send successfully
@@ -694,6 +707,7 @@ public class RakNetClient implements RakNet, MessageIdentifiers {
 	public void disconnect(String reason) {
 		if (session != null) {
 			session.sendPacket(Reliability.UNRELIABLE, new ConnectedCloseConnection());
+			session.close();
 			if (this.state == SessionState.CONNECTED) {
 				this.executeHook(Hook.SESSION_DISCONNECTED, session, reason);
 			}
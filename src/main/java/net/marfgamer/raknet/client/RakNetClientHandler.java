@@ -43,6 +43,7 @@ import net.marfgamer.raknet.protocol.Message;
 import net.marfgamer.raknet.protocol.identifier.MessageIdentifiers;
 import net.marfgamer.raknet.protocol.raknet.internal.Acknowledge;
 import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.ParityPacket;
 import net.marfgamer.raknet.session.ServerSession;
 
 /**
@@ -116,6 +117,10 @@ public class RakNetClientHandler extends SimpleChannelInboundHandler<DatagramPac
 				Acknowledge nack = new Acknowledge(packet);
 				nack.decode();
 				client.handleNack(nack, sender);
+			} else if (pid == ID_PARITY) {
+				ParityPacket parity = new ParityPacket(packet);
+				parity.decode();
+				client.handleParity(parity, sender);
 			} else {
 				client.handleRaw(packet, sender);
 			}
@@ -129,6 +134,10 @@ public class RakNetClientHandler extends SimpleChannelInboundHandler<DatagramPac
 
 	@Override
 	public void channelReadComplete(ChannelHandlerContext ctx) {
+		ServerSession session = client.getSession();
+		if (session != null) {
+			session.sendAcknowledge();
+		}
 		ctx.flush();
 	}
 
@@ -135,6 +135,44 @@ public enum Hook {
 	 */
 	PACKET_RECEIVED,
 
+	/**
+	 * Received whenever a packet sent with an ACK receipt reliability has
+	 * been acknowledged, for split packets this is once every split has been
+	 * acknowledged<br>
+	 * <br>
+	 * 
+	 * Parameter 0: The RakNetSession (RakNetSession)<br>
+	 * Parameter 1: The EncapsulatedPacket returned when it was sent
+	 * (EncapsulatedPacket)
+	 */
+	PACKET_ACKNOWLEDGED,
+
+	/**
+	 * Received whenever a packet sent with an ACK receipt reliability won't
+	 * be acknowledged. This happens when an unreliable packet is lost or
+	 * dropped, and when a packet of any reliability expires before it could
+	 * be sent or resent. For split packets this is as soon as one split has
+	 * been lost or has expired<br>
+	 * <br>
+	 * 
+	 * Parameter 0: The RakNetSession (RakNetSession)<br>
+	 * Parameter 1: The EncapsulatedPacket returned when it was sent
+	 * (EncapsulatedPacket)
+	 */
+	PACKET_NOT_ACKNOWLEDGED,
+
+	/**
+	 * Received whenever a session becomes writable or stops being writable,
+	 * a session stops being writable once its send queue goes over the high
+	 * watermark and becomes writable again once it drops below the low
+	 * watermark<br>
+	 * <br>
+	 * 
+	 * Parameter 0: The RakNetSession (RakNetSession)<br>
+	 * Parameter 1: Whether or not the session is now writable (boolean)<br>
+	 */
+	WRITABILITY_CHANGED,
+
 	/**
 	 * Received whenever a session's latency has been updated<br>
 	 * <br>
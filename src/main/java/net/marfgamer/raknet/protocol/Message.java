@@ -238,8 +238,8 @@ public class Message implements MessageIdentifiers {
 
 	public Message putLTriad(int t) {
 		buffer.writeByte(t << 0);
-		buffer.writeByte(t << 8);
-		buffer.writeByte(t << 16);
+		buffer.writeByte(t >> 8);
+		buffer.writeByte(t >> 16);
 		return this;
 	}
 
@@ -288,11 +288,32 @@ public class Message implements MessageIdentifiers {
 	}
 
 	public byte[] array() {
-		return Arrays.copyOfRange(buffer.array(), 0, buffer.writerIndex());
+		if (buffer.hasArray()) {
+			return Arrays.copyOfRange(buffer.array(), buffer.arrayOffset(),
+					buffer.arrayOffset() + buffer.writerIndex());
+		}
+		byte[] array = new byte[buffer.writerIndex()];
+		buffer.getBytes(0, array);
+		return array;
+	}
+
+	/**
+	 * Returns the array backing the packet's buffer without copying it, only
+	 * the first <code>size()</code> bytes of it belong to the packet. If the
+	 * buffer is not backed by an array starting at its first byte a copy is
+	 * returned instead.
+	 * 
+	 * @return byte[]
+	 */
+	public byte[] backingArray() {
+		if (buffer.hasArray() && buffer.arrayOffset() == 0) {
+			return buffer.array();
+		}
+		return this.array();
 	}
 
 	public int size() {
-		return array().length;
+		return buffer.writerIndex();
 	}
 
 	public ByteBuf buffer() {
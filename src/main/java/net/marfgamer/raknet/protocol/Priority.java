@@ -0,0 +1,75 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.protocol;
+
+/**
+ * Contains all the priorities packets can be sent with. Packets with a
+ * higher priority are sent before packets with a lower priority, but lower
+ * priorities still get a share of the bandwidth based on their weight so
+ * they are never starved completely. <code>IMMEDIATE</code> packets are
+ * always sent first and right away.
+ * 
+ * @author Trent Summerlin
+ */
+public enum Priority {
+
+	IMMEDIATE(0),
+	HIGH(16),
+	MEDIUM(4),
+	LOW(1);
+
+	public static interface INTERFACE {
+
+		public static final Priority IMMEDIATE = Priority.IMMEDIATE;
+		public static final Priority HIGH = Priority.HIGH;
+		public static final Priority MEDIUM = Priority.MEDIUM;
+		public static final Priority LOW = Priority.LOW;
+
+	}
+
+	private final int weight;
+
+	private Priority(int weight) {
+		this.weight = weight;
+	}
+
+	/**
+	 * Returns how many packets of this priority are sent for every packet of
+	 * the lowest priority when both are waiting to be sent, the weight of
+	 * <code>IMMEDIATE</code> is zero as it always goes first
+	 * 
+	 * @return int
+	 */
+	public int getWeight() {
+		return this.weight;
+	}
+
+}
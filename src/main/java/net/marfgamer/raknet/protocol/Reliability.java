@@ -88,6 +88,34 @@ public enum Reliability {
 		return this.sequenced;
 	}
 
+	/**
+	 * Returns whether or not the sender is notified when a packet with this
+	 * reliability is acknowledged or lost
+	 * 
+	 * @return boolean
+	 */
+	public boolean hasAckReceipt() {
+		return this == UNRELIABLE_WITH_ACK_RECEIPT || this == RELIABLE_WITH_ACK_RECEIPT
+				|| this == RELIABLE_ORDERED_WITH_ACK_RECEIPT;
+	}
+
+	/**
+	 * Returns the reliability without the ACK receipt, the ACK receipt is
+	 * only used by the sender so this is the reliability sent to the receiver
+	 * 
+	 * @return Reliability
+	 */
+	public Reliability withoutAckReceipt() {
+		if (this == UNRELIABLE_WITH_ACK_RECEIPT) {
+			return UNRELIABLE;
+		} else if (this == RELIABLE_WITH_ACK_RECEIPT) {
+			return RELIABLE;
+		} else if (this == RELIABLE_ORDERED_WITH_ACK_RECEIPT) {
+			return RELIABLE_ORDERED;
+		}
+		return this;
+	}
+
 	public static Reliability lookup(byte reliability) {
 		Reliability[] reliabilities = Reliability.values();
 		for (Reliability sReliability : reliabilities) {
@@ -85,11 +85,15 @@ public interface MessageIdentifiers {
 	public static final short ID_CUSTOM_E = 0x8E;
 	public static final short ID_CUSTOM_F = 0x8F;
 	public static final short MAX_CHANNELS = 32;
+	public static final short DEFAULT_CHANNEL = 0;
 
 	// Reliability packets
 	public static final short ID_ACK = 0xC0;
 	public static final short ID_NACK = 0xA0;
 
+	// Forward error correction packets
+	public static final short ID_PARITY = 0x7F;
+
 	// Mysterious packets
 	public static final Packet04 ID_UNKNOWN_PACKET_04 = new Packet04();
 	public static final Packet1A ID_UNKNOWN_PACKET_1A = new Packet1A();
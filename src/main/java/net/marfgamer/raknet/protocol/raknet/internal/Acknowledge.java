@@ -31,96 +31,62 @@
 package net.marfgamer.raknet.protocol.raknet.internal;
 
 import java.util.ArrayList;
-import java.util.List;
 
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import net.marfgamer.raknet.protocol.Message;
+import net.marfgamer.raknet.utils.SerialUtils;
 
-public class Acknowledge extends Message implements Bytable {
+public class Acknowledge extends Message {
 
-	public int[] packets;
+	public static final int HEADER_LENGTH = 3;
+
+	/**
+	 * The largest range a single decoded record can cover, anything past this
+	 * is ignored to prevent a malicious record from stalling the handler
+	 */
+	public static final int MAX_RECORD_RANGE = 512;
+
+	public ArrayList<Record> records;
 
 	public Acknowledge(Message packet) {
 		super(packet);
+		this.records = new ArrayList<Record>();
 	}
 
 	public Acknowledge(short id) {
 		super(id);
+		this.records = new ArrayList<Record>();
 	}
 
 	@Override
 	public void encode() {
-		ByteBuf buf = Unpooled.buffer();
-		int count = packets.length;
-		int records = 0;
-
-		if (count > 0) {
-			int pointer = 0;
-			int start = packets[0];
-			int last = packets[0];
-
-			while (pointer + 1 < count) {
-				int current = packets[pointer++];
-				int diff = current - last;
-				if (diff == 1) {
-					last = current;
-				} else if (diff > 1) {
-					if (start == last) {
-						buf.writeBoolean(true);
-						this.writeLTriad(buf, start);
-						start = last = current;
-					} else {
-						buf.writeBoolean(false);
-						this.writeLTriad(buf, start);
-						this.writeLTriad(buf, last);
-						start = last = current;
-					}
-					records = records + 1;
-				}
-			}
-
-			if (start == last) {
-				buf.writeBoolean(true);
-				this.writeLTriad(buf, start);
+		this.putUShort(records.size());
+		for (Record record : records) {
+			if (record.isRanged()) {
+				this.putBoolean(false);
+				this.putLTriad(record.index);
+				this.putLTriad(record.endIndex);
 			} else {
-				buf.writeBoolean(false);
-				this.writeLTriad(buf, start);
-				this.writeLTriad(buf, last);
+				this.putBoolean(true);
+				this.putLTriad(record.index);
 			}
-			records = records + 1;
 		}
-
-		this.putUShort(records);
-		this.put(buf.array());
 	}
 
 	@Override
 	public void decode() {
 		int count = this.getUShort();
-		List<Integer> packets = new ArrayList<>();
-		int cnt = 0;
-		for (int i = 0; i < count && this.remaining() > 0 && cnt < 4096; i++) {
+		for (int i = 0; i < count && this.remaining() > 0; i++) {
 			if (!this.getBoolean()) {
-				int start = this.getLTriad();
-				int end = this.getLTriad();
-				if ((end - start) > 512) {
-					end = start + 512;
-				}
-				for (int c = start; c <= end; c++) {
-					cnt = cnt + 1;
-					packets.add(c);
+				int index = this.getLTriad();
+				int endIndex = this.getLTriad();
+				if (SerialUtils.difference(endIndex, index) > MAX_RECORD_RANGE) {
+					endIndex = SerialUtils.add(index, MAX_RECORD_RANGE);
 				}
+				records.add(new Record(index, endIndex));
 			} else {
-				packets.add(this.getLTriad());
+				records.add(new Record(this.getLTriad()));
 			}
 		}
-
-		// Manually set values
-		this.packets = new int[packets.size()];
-		for (int i = 0; i < packets.size(); i++) {
-			this.packets[i] = packets.get(i).intValue();
-		}
 	}
 
 }
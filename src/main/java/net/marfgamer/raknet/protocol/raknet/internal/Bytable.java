@@ -47,8 +47,8 @@ public interface Bytable {
 
 	public default void writeLTriad(ByteBuf buffer, int t) {
 		buffer.writeByte(t << 0);
-		buffer.writeByte(t << 8);
-		buffer.writeByte(t << 16);
+		buffer.writeByte(t >> 8);
+		buffer.writeByte(t >> 16);
 	}
 
 }
@@ -0,0 +1,160 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.protocol.raknet.internal;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps track of whether or not a packet sent with an ACK receipt reliability
+ * has been acknowledged. Every split of a packet shares the same receipt, so
+ * the packet is only acknowledged once every split has been acknowledged and
+ * is lost as soon as any split is lost. A receipt can also have a future
+ * that is completed once the packet has been acknowledged. Split packets with
+ * an expiration time are always given a receipt, so their splits expire
+ * together.
+ *
+ * @author Trent Summerlin
+ */
+public class DeliveryReceipt {
+
+	private final EncapsulatedPacket packet;
+	private final CompletableFuture<EncapsulatedPacket> future;
+	private final long deadline;
+	private int remaining;
+	private boolean sent;
+	private boolean lost;
+
+	public DeliveryReceipt(EncapsulatedPacket packet, CompletableFuture<EncapsulatedPacket> future, long deadline) {
+		this.packet = packet;
+		this.future = future;
+		this.deadline = deadline;
+	}
+
+	public DeliveryReceipt(EncapsulatedPacket packet) {
+		this(packet, null, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the packet the receipt is for
+	 * 
+	 * @return EncapsulatedPacket
+	 */
+	public EncapsulatedPacket getPacket() {
+		return this.packet;
+	}
+
+	/**
+	 * Returns the future completed once the packet has been acknowledged, or
+	 * <code>null</code> if the receipt doesn't have one
+	 * 
+	 * @return CompletableFuture
+	 */
+	public CompletableFuture<EncapsulatedPacket> getFuture() {
+		return this.future;
+	}
+
+	/**
+	 * Returns the time the packet must be acknowledged by before its future
+	 * fails
+	 * 
+	 * @return long
+	 */
+	public long getDeadline() {
+		return this.deadline;
+	}
+
+	/**
+	 * Returns whether or not every split of the packet has been acknowledged
+	 * 
+	 * @return boolean
+	 */
+	public boolean isAcknowledged() {
+		return remaining <= 0 && lost == false;
+	}
+
+	/**
+	 * Returns whether or not any split of the packet has been sent
+	 * 
+	 * @return boolean
+	 */
+	public boolean isSent() {
+		return this.sent;
+	}
+
+	/**
+	 * Returns whether or not the packet was lost
+	 * 
+	 * @return boolean
+	 */
+	public boolean isLost() {
+		return this.lost;
+	}
+
+	/**
+	 * Called when a split of the packet is queued to be sent
+	 */
+	public void expect() {
+		this.remaining++;
+	}
+
+	/**
+	 * Called when a split of the packet is sent for the first time
+	 */
+	public void send() {
+		this.sent = true;
+	}
+
+	/**
+	 * Called when a split of the packet has been acknowledged, returns
+	 * <code>true</code> if this was the last split that needed to be
+	 * acknowledged
+	 * 
+	 * @return boolean
+	 */
+	public boolean acknowledge() {
+		return --remaining == 0 && lost == false;
+	}
+
+	/**
+	 * Called when a split of the packet has been lost, returns
+	 * <code>true</code> if this is the first split that was lost
+	 * 
+	 * @return boolean
+	 */
+	public boolean lose() {
+		if (lost == true || remaining <= 0) {
+			return false;
+		}
+		this.lost = true;
+		return true;
+	}
+
+}
@@ -30,13 +30,11 @@
  */
 package net.marfgamer.raknet.protocol.raknet.internal;
 
-import java.util.ArrayList;
-
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.marfgamer.raknet.RakNet;
 import net.marfgamer.raknet.protocol.Message;
 import net.marfgamer.raknet.protocol.Reliability;
-import net.marfgamer.raknet.utils.ArrayUtils;
 
 public class EncapsulatedPacket implements Bytable {
 
@@ -73,29 +71,44 @@ public class EncapsulatedPacket implements Bytable {
 		return headerSize;
 	}
 
+	/**
+	 * Splits a packet into packets small enough to fit in a
+	 * <code>CustomPacket</code> of the specified MTU size. The splits share
+	 * the original packet's payload array, each split only points to its part
+	 * of it so the payload is not copied until the splits are encoded.
+	 * 
+	 * @param packet
+	 * @param mtuSize
+	 * @param splitId
+	 * @return EncapsulatedPacket[]
+	 */
 	public static EncapsulatedPacket[] split(EncapsulatedPacket packet, int mtuSize, int splitId) {
-		byte[][] splitData = ArrayUtils.splitArray(packet.payload,
-				mtuSize - CustomPacket.HEADER_LENGTH - getHeaderLength(packet.reliability, true));
-		ArrayList<EncapsulatedPacket> packets = new ArrayList<EncapsulatedPacket>();
-		for (int i = 0; i < splitData.length; i++) {
+		int length = packet.getPayloadLength();
+		int size = mtuSize - CustomPacket.HEADER_LENGTH - getHeaderLength(packet.reliability, true);
+		EncapsulatedPacket[] packets = new EncapsulatedPacket[(length + size - 1) / size];
+		for (int i = 0; i < packets.length; i++) {
 			// Copy packet data
 			EncapsulatedPacket encapsulated = new EncapsulatedPacket();
 			encapsulated.reliability = packet.reliability;
 			encapsulated.messageIndex = packet.messageIndex;
 			encapsulated.orderChannel = packet.orderChannel;
 			encapsulated.orderIndex = packet.orderIndex;
+			encapsulated.receipt = packet.receipt;
+			encapsulated.expirationTime = packet.expirationTime;
 
 			// Set split data
 			encapsulated.split = true;
 			encapsulated.splitIndex = i;
 			encapsulated.splitId = splitId;
-			encapsulated.splitCount = splitData.length;
+			encapsulated.splitCount = packets.length;
 
-			// Set payload data
-			encapsulated.payload = splitData[i];
-			packets.add(encapsulated);
+			// Point to the split's part of the payload
+			encapsulated.payload = packet.payload;
+			encapsulated.payloadOffset = packet.payloadOffset + (i * size);
+			encapsulated.payloadLength = Math.min(size, length - (i * size));
+			packets[i] = encapsulated;
 		}
-		return packets.toArray(new EncapsulatedPacket[packets.size()]);
+		return packets;
 	}
 
 	/**
@@ -130,10 +143,63 @@ public class EncapsulatedPacket implements Bytable {
 
 	// Packet payload
 	public byte[] payload;
+	public int payloadOffset;
+	public int payloadLength = -1;
+
+	// Receipt data, this is never encoded
+	public DeliveryReceipt receipt;
+
+	// Expiration data, this is never encoded
+	public long expirationTime;
+
+	// Coalescing data, this is never encoded
+	public boolean coalesced;
+	public long coalesceKey;
+
+	// Whether or not the message index was given out, this is never encoded
+	public boolean indexed;
+
+	/**
+	 * Returns whether or not the packet has expired and should no longer be
+	 * sent, packets without an expiration time never expire. Once any split
+	 * of a packet has been sent the rest of its splits no longer expire, as
+	 * the other side could never finish putting the packet back together.
+	 * 
+	 * @param time
+	 * @return boolean
+	 */
+	public boolean isExpired(long time) {
+		if (split == true && receipt != null && receipt.isSent()) {
+			return false;
+		}
+		return expirationTime > 0 && time >= expirationTime;
+	}
+
+	/**
+	 * Returns the amount of bytes in the payload that belong to this packet,
+	 * if the payload length is not set this is everything in the payload
+	 * array after the payload offset
+	 * 
+	 * @return int
+	 */
+	public int getPayloadLength() {
+		return (payloadLength >= 0 ? payloadLength : payload.length - payloadOffset);
+	}
+
+	/**
+	 * Returns the amount of bytes this packet will take up once it has been
+	 * encoded into a <code>CustomPacket</code>
+	 * 
+	 * @return int
+	 */
+	public int calculateSize() {
+		return getHeaderLength(reliability, split) + this.getPayloadLength();
+	}
 
 	public void encode(ByteBuf buffer) {
-		buffer.writeByte((byte) ((reliability.asByte() << 5) | (split ? FLAG_SPLIT : 0)));
-		buffer.writeShort((payload.length * 8) & 0xFFFF);
+		buffer.writeByte((byte) ((reliability.withoutAckReceipt().asByte() << 5) | (split ? FLAG_SPLIT : 0)));
+		int length = this.getPayloadLength();
+		buffer.writeShort((length * 8) & 0xFFFF);
 
 		if (reliability.isReliable()) {
 			this.writeLTriad(buffer, messageIndex);
@@ -150,7 +216,7 @@ public class EncapsulatedPacket implements Bytable {
 			buffer.writeInt(splitIndex);
 		}
 
-		buffer.writeBytes(payload);
+		buffer.writeBytes(payload, payloadOffset, length);
 	}
 
 	public void decode(ByteBuf buffer) {
@@ -165,21 +231,29 @@ public class EncapsulatedPacket implements Bytable {
 
 		if (reliability.isOrdered() || reliability.isSequenced()) {
 			this.orderIndex = this.readLTriad(buffer);
-			this.orderChannel = buffer.readByte();
+			this.orderChannel = buffer.readUnsignedByte();
 		}
 
 		if (split) {
 			this.splitCount = buffer.readInt();
-			this.splitId = buffer.readShort();
+			this.splitId = buffer.readUnsignedShort();
 			this.splitIndex = buffer.readInt();
 		}
 
 		this.payload = new byte[length];
+		this.payloadOffset = 0;
+		this.payloadLength = length;
 		buffer.readBytes(payload);
 	}
 
+	/**
+	 * Returns the payload as a <code>Message</code>, the message is backed by
+	 * the payload instead of a copy of it
+	 * 
+	 * @return Message
+	 */
 	public Message convertPayload() {
-		return new Message(payload);
+		return new Message(Unpooled.wrappedBuffer(payload, payloadOffset, this.getPayloadLength()));
 	}
 
 }
@@ -0,0 +1,92 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.protocol.raknet.internal;
+
+import net.marfgamer.raknet.protocol.Message;
+
+/**
+ * Sent after a group of <code>CustomPackets</code> when forward error
+ * correction is enabled. It contains every byte of the packets in the group
+ * XOR'd together, so the receiver can rebuild any single one of them that was
+ * lost without waiting for it to be resent.
+ *
+ * @author Trent Summerlin
+ */
+public class ParityPacket extends Message {
+
+	public static final int HEADER_LENGTH = 4;
+
+	public int[] seqNumbers;
+	public int length;
+	public byte[] parity;
+	public int parityLength;
+
+	public ParityPacket(Message packet) {
+		super(packet);
+	}
+
+	public ParityPacket() {
+		super(ID_PARITY);
+	}
+
+	/**
+	 * Returns the length of the header for a parity packet protecting a
+	 * group of the specified size
+	 * 
+	 * @param groupSize
+	 * @return int
+	 */
+	public static int getHeaderLength(int groupSize) {
+		return HEADER_LENGTH + (groupSize * 3);
+	}
+
+	@Override
+	public void encode() {
+		this.putUByte(seqNumbers.length);
+		for (int seqNumber : seqNumbers) {
+			this.putLTriad(seqNumber);
+		}
+		this.putUShort(length);
+		buffer.writeBytes(parity, 0, parityLength);
+	}
+
+	@Override
+	public void decode() {
+		this.seqNumbers = new int[this.getUByte()];
+		for (int i = 0; i < seqNumbers.length; i++) {
+			seqNumbers[i] = this.getLTriad();
+		}
+		this.length = this.getUShort();
+		this.parityLength = this.remaining();
+		this.parity = this.get(parityLength);
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.protocol.raknet.internal;
+
+/**
+ * Represents a single sequence number or a range of sequence numbers inside
+ * of an <code>Acknowledge</code> packet
+ *
+ * @author Trent Summerlin
+ */
+public class Record {
+
+	public int index;
+	public int endIndex;
+
+	public Record(int index, int endIndex) {
+		this.index = index;
+		this.endIndex = endIndex;
+	}
+
+	public Record(int index) {
+		this(index, index);
+	}
+
+	/**
+	 * Returns whether or not the record contains more than one sequence
+	 * number
+	 * 
+	 * @return boolean
+	 */
+	public boolean isRanged() {
+		return this.index != this.endIndex;
+	}
+
+	/**
+	 * Returns the amount of bytes the record takes up once encoded
+	 * 
+	 * @return int
+	 */
+	public int calculateSize() {
+		return (this.isRanged() ? 7 : 4);
+	}
+
+}
@@ -32,6 +32,7 @@ package net.marfgamer.raknet.server;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
 
 import io.netty.channel.ChannelHandlerContext;
@@ -45,6 +46,7 @@ import net.marfgamer.raknet.protocol.raknet.ConnectedCloseConnection;
 import net.marfgamer.raknet.protocol.raknet.UnconnectedConnectionBanned;
 import net.marfgamer.raknet.protocol.raknet.internal.Acknowledge;
 import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.ParityPacket;
 import net.marfgamer.raknet.session.ClientSession;
 import net.marfgamer.raknet.session.SessionState;
 
@@ -61,6 +63,9 @@ public class RakNetServerHandler extends SimpleChannelInboundHandler<DatagramPac
 	private final ConcurrentHashMap<InetSocketAddress, ClientSession> sessions;
 	private final ConcurrentHashMap<InetAddress, BlockedAddress> blocked;
 
+	// Sessions that need to be acknowledged once reading is complete
+	private final ArrayList<ClientSession> acknowledging;
+
 	// Used in exception handling
 	private InetSocketAddress lastSender;
 
@@ -68,6 +73,7 @@ public class RakNetServerHandler extends SimpleChannelInboundHandler<DatagramPac
 		this.server = server;
 		this.sessions = new ConcurrentHashMap<InetSocketAddress, ClientSession>();
 		this.blocked = new ConcurrentHashMap<InetAddress, BlockedAddress>();
+		this.acknowledging = new ArrayList<ClientSession>();
 	}
 
 	/**
@@ -97,6 +103,7 @@ public class RakNetServerHandler extends SimpleChannelInboundHandler<DatagramPac
 	public void removeSession(InetSocketAddress address, String reason) {
 		if (sessions.containsKey(address)) {
 			ClientSession session = sessions.remove(address);
+			session.close();
 			if (session.getState() == SessionState.CONNECTED) {
 				server.executeHook(Hook.SESSION_DISCONNECTED, session, reason);
 			}
@@ -205,6 +212,9 @@ public class RakNetServerHandler extends SimpleChannelInboundHandler<DatagramPac
 			if (pid >= ID_CUSTOM_0 && pid <= ID_CUSTOM_F) {
 				CustomPacket custom = new CustomPacket(packet);
 				custom.decode();
+				if (!acknowledging.contains(session)) {
+					acknowledging.add(session);
+				}
 				session.handleCustom0(custom);
 			} else if (pid == ID_ACK) {
 				Acknowledge ack = new Acknowledge(packet);
@@ -214,6 +224,13 @@ public class RakNetServerHandler extends SimpleChannelInboundHandler<DatagramPac
 				Acknowledge nack = new Acknowledge(packet);
 				nack.decode();
 				session.handleNack(nack);
+			} else if (pid == ID_PARITY) {
+				ParityPacket parity = new ParityPacket(packet);
+				parity.decode();
+				if (!acknowledging.contains(session)) {
+					acknowledging.add(session);
+				}
+				session.handleParity(parity);
 			} else {
 				server.handleRaw(packet, session);
 			}
@@ -230,6 +247,10 @@ public class RakNetServerHandler extends SimpleChannelInboundHandler<DatagramPac
 
 	@Override
 	public void channelReadComplete(ChannelHandlerContext ctx) {
+		for (ClientSession session : acknowledging) {
+			session.sendAcknowledge();
+		}
+		acknowledging.clear();
 		ctx.flush();
 	}
 
@@ -134,4 +134,19 @@ public class ClientSession extends RakNetSession {
 		}
 	}
 
+	@Override
+	public void onAcknowledge(EncapsulatedPacket encapsulated) {
+		server.executeHook(Hook.PACKET_ACKNOWLEDGED, this, encapsulated);
+	}
+
+	@Override
+	public void onNotAcknowledge(EncapsulatedPacket encapsulated) {
+		server.executeHook(Hook.PACKET_NOT_ACKNOWLEDGED, this, encapsulated);
+	}
+
+	@Override
+	public void onWritabilityChanged(boolean writable) {
+		server.executeHook(Hook.WRITABILITY_CHANGED, this, writable);
+	}
+
 }
@@ -0,0 +1,79 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+/**
+ * Decides how many <code>CustomPackets</code> a <code>RakNetSession</code> is
+ * allowed to have waiting to be acknowledged at once. Packets that don't fit
+ * in the congestion window wait in the session's send queue until enough of
+ * the packets already sent have been acknowledged or given up on.
+ *
+ * @author Trent Summerlin
+ */
+public interface CongestionController {
+
+	/**
+	 * Returns how many packets can be waiting to be acknowledged at once
+	 * 
+	 * @return int
+	 */
+	public int getCongestionWindow();
+
+	/**
+	 * Called when a packet has been acknowledged
+	 * 
+	 * @param currentTime
+	 */
+	public void onAcknowledge(long currentTime);
+
+	/**
+	 * Called when a packet has been reported as lost by a NACK
+	 * 
+	 * @param currentTime
+	 */
+	public void onNotAcknowledge(long currentTime);
+
+	/**
+	 * Called when a packet was not acknowledged before its retransmission
+	 * timeout expired
+	 * 
+	 * @param currentTime
+	 */
+	public void onTimeout(long currentTime);
+
+	/**
+	 * Called every time a new round trip time is measured
+	 * 
+	 * @param roundTripTime
+	 */
+	public void onRoundTripTime(long roundTripTime);
+
+}
@@ -0,0 +1,105 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import net.marfgamer.raknet.RakNet;
+
+/**
+ * The default <code>CongestionController</code>, the window starts small and
+ * grows by one packet for every acknowledgement (slow start) until a packet is
+ * lost, after that it grows by one packet every round trip and is halved
+ * whenever a packet is lost. A retransmission timeout shrinks the window back
+ * to the minimum.
+ *
+ * @author Trent Summerlin
+ */
+public class DefaultCongestionController implements CongestionController, RakNet {
+
+	private double window;
+	private double threshold;
+	private long roundTripTime;
+	private long recoveryTime;
+
+	public DefaultCongestionController() {
+		this.window = INITIAL_CONGESTION_WINDOW;
+		this.threshold = MAX_CONGESTION_WINDOW;
+		this.roundTripTime = INITIAL_RETRANSMISSION_TIMEOUT;
+	}
+
+	@Override
+	public int getCongestionWindow() {
+		return (int) this.window;
+	}
+
+	/**
+	 * Returns the window size where slow start ends
+	 * 
+	 * @return int
+	 */
+	public int getSlowStartThreshold() {
+		return (int) this.threshold;
+	}
+
+	@Override
+	public void onAcknowledge(long currentTime) {
+		if (window < threshold) {
+			this.window += 1.0D;
+		} else {
+			this.window += 1.0D / window;
+		}
+		this.window = Math.min(window, MAX_CONGESTION_WINDOW);
+	}
+
+	@Override
+	public void onNotAcknowledge(long currentTime) {
+		// Only back off once for every round trip worth of lost packets
+		if (currentTime >= recoveryTime) {
+			this.threshold = Math.max(window / 2.0D, MINIMUM_CONGESTION_WINDOW);
+			this.window = threshold;
+			this.recoveryTime = currentTime + roundTripTime;
+		}
+	}
+
+	@Override
+	public void onTimeout(long currentTime) {
+		if (currentTime >= recoveryTime) {
+			this.threshold = Math.max(window / 2.0D, MINIMUM_CONGESTION_WINDOW);
+			this.window = MINIMUM_CONGESTION_WINDOW;
+			this.recoveryTime = currentTime + roundTripTime;
+		}
+	}
+
+	@Override
+	public void onRoundTripTime(long roundTripTime) {
+		this.roundTripTime = roundTripTime;
+	}
+
+}
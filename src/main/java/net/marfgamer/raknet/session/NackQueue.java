@@ -0,0 +1,181 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import static net.marfgamer.raknet.utils.SerialUtils.*;
+
+import java.util.ArrayList;
+
+import net.marfgamer.raknet.protocol.raknet.internal.Record;
+
+/**
+ * Used by <code>RakNetSession</code> to keep track of the ranges of sequence
+ * numbers that have not been received yet. A range is only reported as lost
+ * once it has been missing for longer than the NACK delay, so packets that
+ * simply arrived out of order are not resent for nothing.
+ *
+ * @author Trent Summerlin
+ */
+public class NackQueue {
+
+	private final int maxRange;
+	private final ArrayList<MissingRange> missing;
+	private int expected;
+
+	public NackQueue(int maxRange) {
+		this.maxRange = maxRange;
+		this.missing = new ArrayList<MissingRange>();
+	}
+
+	/**
+	 * Returns whether or not there are any missing sequence numbers
+	 * 
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+		return missing.isEmpty();
+	}
+
+	/**
+	 * Returns the time the oldest missing range was found, or
+	 * <code>-1</code> if nothing is missing
+	 * 
+	 * @return long
+	 */
+	public long getOldestTime() {
+		return (missing.isEmpty() ? -1L : missing.get(0).time);
+	}
+
+	/**
+	 * Updates the missing ranges with a newly received sequence number, if
+	 * it skips ahead of the expected sequence number the skipped numbers are
+	 * marked as missing. Only the last <code>maxRange</code> sequence
+	 * numbers are ever kept track of.
+	 * 
+	 * @param seqNumber
+	 * @param time
+	 */
+	public void receive(int seqNumber, long time) {
+		int difference = difference(seqNumber, expected);
+		if (difference == 0) {
+			this.expected = next(expected);
+		} else if (difference > 0) {
+			int oldest = add(seqNumber, -maxRange);
+			missing.add(new MissingRange(difference > maxRange ? oldest : expected, add(seqNumber, -1), time));
+			this.expected = next(seqNumber);
+			this.forget(oldest);
+		} else {
+			this.fill(seqNumber);
+		}
+	}
+
+	/**
+	 * Removes every missing range that has been missing for at least the
+	 * specified delay and adds them to the records
+	 * 
+	 * @param time
+	 * @param delay
+	 * @param records
+	 */
+	public void poll(long time, long delay, ArrayList<Record> records) {
+		while (!missing.isEmpty() && time - missing.get(0).time >= delay) {
+			MissingRange range = missing.remove(0);
+			records.add(new Record(range.index, range.endIndex));
+		}
+	}
+
+	/**
+	 * Removes a sequence number that arrived late from the missing ranges,
+	 * splitting the range it was in if needed
+	 * 
+	 * @param seqNumber
+	 */
+	private void fill(int seqNumber) {
+		for (int i = missing.size() - 1; i >= 0; i--) {
+			MissingRange range = missing.get(i);
+			if (isNewer(seqNumber, range.endIndex)) {
+				return; // Ranges are sorted, it was not missing
+			} else if (!isNewer(range.index, seqNumber)) {
+				if (range.index == range.endIndex) {
+					missing.remove(i);
+				} else if (seqNumber == range.index) {
+					range.index = next(range.index);
+				} else if (seqNumber == range.endIndex) {
+					range.endIndex = add(range.endIndex, -1);
+				} else {
+					missing.add(i + 1, new MissingRange(next(seqNumber), range.endIndex, range.time));
+					range.endIndex = add(seqNumber, -1);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Forgets every missing sequence number older than the specified
+	 * sequence number
+	 * 
+	 * @param seqNumber
+	 */
+	private void forget(int seqNumber) {
+		while (!missing.isEmpty()) {
+			MissingRange range = missing.get(0);
+			if (isNewer(seqNumber, range.endIndex)) {
+				missing.remove(0);
+			} else {
+				if (isNewer(seqNumber, range.index)) {
+					range.index = seqNumber;
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * A range of missing sequence numbers and the time it was found
+	 *
+	 * @author Trent Summerlin
+	 */
+	private static class MissingRange {
+
+		public int index;
+		public int endIndex;
+		public final long time;
+
+		public MissingRange(int index, int endIndex, long time) {
+			this.index = index;
+			this.endIndex = endIndex;
+			this.time = time;
+		}
+
+	}
+
+}
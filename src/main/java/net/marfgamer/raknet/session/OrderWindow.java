@@ -0,0 +1,119 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import static net.marfgamer.raknet.utils.SerialUtils.*;
+
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+
+/**
+ * Used by <code>RakNetSession</code> to keep track of the ordered packets sent
+ * on a single order channel that have not been acknowledged yet. The other
+ * side can only hold so many packets that arrived ahead of a lost one, so no
+ * packet is sent with an order index that is too far ahead of the oldest
+ * order index that has not been acknowledged.
+ *
+ * @author Trent Summerlin
+ */
+public class OrderWindow {
+
+	private final int capacity;
+	private final int mask;
+	private int[] pending;
+	private int orderIndex;
+	private int sentIndex;
+
+	public OrderWindow(int capacity) {
+		if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the oldest order index that has not been acknowledged
+	 * 
+	 * @return int
+	 */
+	public int getOrderIndex() {
+		return this.orderIndex;
+	}
+
+	/**
+	 * Returns whether or not a packet with the specified order index can be
+	 * sent without overflowing the ordering queue on the other side
+	 * 
+	 * @param orderIndex
+	 * @return boolean
+	 */
+	public boolean canSend(int orderIndex) {
+		return difference(orderIndex, this.orderIndex) < capacity;
+	}
+
+	/**
+	 * Called when an ordered packet is sent for the first time, the first
+	 * split of a packet counts for every split so the order index is not
+	 * acknowledged until all of them have been
+	 * 
+	 * @param encapsulated
+	 */
+	public void send(EncapsulatedPacket encapsulated) {
+		if (encapsulated.split == true && encapsulated.splitIndex != 0) {
+			return; // Already counted by the first split
+		}
+		if (pending == null) {
+			this.pending = new int[capacity];
+		}
+		pending[encapsulated.orderIndex & mask] += (encapsulated.split ? encapsulated.splitCount : 1);
+		if (!isNewer(sentIndex, encapsulated.orderIndex)) {
+			this.sentIndex = next(encapsulated.orderIndex);
+		}
+	}
+
+	/**
+	 * Called when an ordered packet has been acknowledged, moves the window
+	 * past every order index that has now been acknowledged in full
+	 * 
+	 * @param encapsulated
+	 */
+	public void acknowledge(EncapsulatedPacket encapsulated) {
+		if (pending == null) {
+			return; // Nothing was sent
+		}
+		pending[encapsulated.orderIndex & mask]--;
+		while (orderIndex != sentIndex && pending[orderIndex & mask] <= 0) {
+			pending[orderIndex & mask] = 0;
+			this.orderIndex = next(orderIndex);
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import static net.marfgamer.raknet.utils.SerialUtils.*;
+
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+
+/**
+ * Used by <code>RakNetSession</code> to hold ordered packets that arrived
+ * before the packets in front of them on a single order channel. Packets are
+ * stored in a fixed size ring indexed by their order index, so no memory is
+ * allocated for each packet.
+ *
+ * @author Trent Summerlin
+ */
+public class OrderingQueue {
+
+	private final int capacity;
+	private final int mask;
+	private EncapsulatedPacket[] queue;
+	private int orderIndex;
+	private int held;
+
+	public OrderingQueue(int capacity) {
+		if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the order index of the next packet that can be handled
+	 * 
+	 * @return int
+	 */
+	public int getOrderIndex() {
+		return this.orderIndex;
+	}
+
+	/**
+	 * Returns the amount of packets being held until the packets in front of
+	 * them arrive
+	 * 
+	 * @return int
+	 */
+	public int getHeld() {
+		return this.held;
+	}
+
+	/**
+	 * Returns whether or not the packet with the specified order index is too
+	 * far ahead of the current order index to be held
+	 * 
+	 * @param orderIndex
+	 * @return boolean
+	 */
+	public boolean isOverflowing(int orderIndex) {
+		return difference(orderIndex, this.orderIndex) >= capacity;
+	}
+
+	/**
+	 * Offers a packet to the queue, returns <code>true</code> if the packet is
+	 * next in order and can be handled right away. Otherwise the packet is
+	 * either held until the packets in front of it arrive or discarded if it
+	 * is older than the current order index.
+	 * 
+	 * @param encapsulated
+	 * @return boolean
+	 */
+	public boolean offer(EncapsulatedPacket encapsulated) {
+		int difference = difference(encapsulated.orderIndex, this.orderIndex);
+		if (difference == 0) {
+			this.orderIndex = next(orderIndex);
+			return true;
+		} else if (difference > 0 && difference < capacity) {
+			if (queue == null) {
+				this.queue = new EncapsulatedPacket[capacity];
+			}
+			int slot = encapsulated.orderIndex & mask;
+			if (queue[slot] == null) {
+				this.held++;
+			}
+			queue[slot] = encapsulated;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the next held packet if it is now in order, or
+	 * <code>null</code> if the packet in front of it has still not arrived
+	 * 
+	 * @return EncapsulatedPacket
+	 */
+	public EncapsulatedPacket poll() {
+		if (held <= 0) {
+			return null;
+		}
+		int slot = this.orderIndex & mask;
+		EncapsulatedPacket encapsulated = queue[slot];
+		if (encapsulated != null) {
+			queue[slot] = null;
+			this.held--;
+			this.orderIndex = next(orderIndex);
+		}
+		return encapsulated;
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+/**
+ * A token bucket used by <code>RakNetSession</code> to spread the packets it
+ * sends out over time instead of sending them all at once. Tokens are bytes,
+ * they are refilled at the pacing rate up to the capacity of the bucket and a
+ * packet can be sent as long as there are tokens left, even if it is bigger
+ * than the amount of tokens left.
+ *
+ * @author Trent Summerlin
+ */
+public class Pacer {
+
+	private long rate;
+	private long capacity;
+	private double tokens;
+	private long lastRefill;
+
+	public Pacer(long rate, long capacity) {
+		this.setRate(rate);
+		this.setCapacity(capacity);
+		this.tokens = capacity;
+		this.lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Returns the pacing rate in bytes per second
+	 * 
+	 * @return long
+	 */
+	public long getRate() {
+		return this.rate;
+	}
+
+	/**
+	 * Sets the pacing rate in bytes per second
+	 * 
+	 * @param rate
+	 */
+	public void setRate(long rate) {
+		if (rate <= 0) {
+			throw new IllegalArgumentException("Rate must be greater than zero");
+		}
+		this.rate = rate;
+	}
+
+	/**
+	 * Returns the maximum amount of bytes that can be sent at once
+	 * 
+	 * @return long
+	 */
+	public long getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Sets the maximum amount of bytes that can be sent at once
+	 * 
+	 * @param capacity
+	 */
+	public void setCapacity(long capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than zero");
+		}
+		this.capacity = capacity;
+		this.tokens = Math.min(tokens, capacity);
+	}
+
+	/**
+	 * Adds the tokens gained since the last refill
+	 * 
+	 * @param time
+	 */
+	private void refill(long time) {
+		if (time > lastRefill) {
+			this.tokens = Math.min(capacity, tokens + ((time - lastRefill) * rate / 1000000000.0D));
+			this.lastRefill = time;
+		}
+	}
+
+	/**
+	 * Returns whether or not a packet can be sent right now
+	 * 
+	 * @param time
+	 *            the current time in nanoseconds
+	 * @return boolean
+	 */
+	public boolean canSend(long time) {
+		this.refill(time);
+		return tokens > 0;
+	}
+
+	/**
+	 * Takes the tokens needed to send a packet of the specified size
+	 * 
+	 * @param size
+	 */
+	public void consume(int size) {
+		this.tokens -= size;
+	}
+
+	/**
+	 * Returns how long in nanoseconds it will be until a packet can be sent
+	 * 
+	 * @param time
+	 *            the current time in nanoseconds
+	 * @return long
+	 */
+	public long getDelay(long time) {
+		this.refill(time);
+		if (tokens > 0) {
+			return 0;
+		}
+		return (long) Math.ceil((-tokens + 1) * 1000000000.0D / rate);
+	}
+
+}
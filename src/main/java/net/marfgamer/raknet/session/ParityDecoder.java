@@ -0,0 +1,144 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import java.util.Arrays;
+
+import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.ParityPacket;
+
+/**
+ * Used by <code>RakNetSession</code> to rebuild lost
+ * <code>CustomPackets</code> from parity packets. The most recently received
+ * packets are kept in a fixed size ring indexed by their sequence number, so
+ * a group can only be recovered while every other packet in it is still
+ * there.
+ *
+ * @author Trent Summerlin
+ */
+public class ParityDecoder {
+
+	private final int mask;
+	private final int[] seqNumbers;
+	private final byte[][] packets;
+
+	public ParityDecoder(int capacity) {
+		if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		this.mask = capacity - 1;
+		this.seqNumbers = new int[capacity];
+		this.packets = new byte[capacity][];
+	}
+
+	/**
+	 * Keeps a received <code>CustomPacket</code> in case it is needed to
+	 * recover another packet in its group
+	 * 
+	 * @param custom
+	 */
+	public void store(CustomPacket custom) {
+		int slot = custom.seqNumber & mask;
+		seqNumbers[slot] = custom.seqNumber;
+		packets[slot] = custom.array();
+	}
+
+	/**
+	 * Returns whether or not the packet with the specified sequence number is
+	 * being kept
+	 * 
+	 * @param seqNumber
+	 * @return boolean
+	 */
+	public boolean contains(int seqNumber) {
+		int slot = seqNumber & mask;
+		return packets[slot] != null && seqNumbers[slot] == seqNumber;
+	}
+
+	/**
+	 * Returns how many packets in the parity packet's group are missing
+	 * 
+	 * @param parity
+	 * @return int
+	 */
+	public int getMissing(ParityPacket parity) {
+		int missing = 0;
+		for (int seqNumber : parity.seqNumbers) {
+			if (!this.contains(seqNumber)) {
+				missing++;
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Rebuilds the only missing packet in the parity packet's group, returns
+	 * <code>null</code> if it can't be rebuilt
+	 * 
+	 * @param parity
+	 * @return byte[]
+	 */
+	public byte[] recover(ParityPacket parity) {
+		if (this.getMissing(parity) != 1) {
+			return null;
+		}
+
+		// XOR every packet that did arrive out of the parity
+		int missing = -1;
+		int length = parity.length;
+		byte[] recovered = Arrays.copyOf(parity.parity, parity.parityLength);
+		for (int seqNumber : parity.seqNumbers) {
+			if (this.contains(seqNumber)) {
+				byte[] packet = packets[seqNumber & mask];
+				if (packet.length > recovered.length) {
+					return null; // Packet is not part of this group
+				}
+				for (int i = 0; i < packet.length; i++) {
+					recovered[i] ^= packet[i];
+				}
+				length ^= packet.length;
+			} else {
+				missing = seqNumber;
+			}
+		}
+
+		// Make sure the packet was rebuilt correctly
+		if (length < CustomPacket.HEADER_LENGTH || length > recovered.length) {
+			return null;
+		}
+		int seqNumber = (recovered[1] & 0xFF) | ((recovered[2] & 0xFF) << 8) | ((recovered[3] & 0xFF) << 16);
+		if (seqNumber != missing) {
+			return null;
+		}
+		return Arrays.copyOf(recovered, length);
+	}
+
+}
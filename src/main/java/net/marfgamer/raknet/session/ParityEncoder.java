@@ -0,0 +1,124 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.ParityPacket;
+
+/**
+ * Used by <code>RakNetSession</code> to build the parity packet for each
+ * group of <code>CustomPackets</code> sent while forward error correction is
+ * enabled. Every packet added is XOR'd into the parity as it is sent, so
+ * nothing has to be kept around once it has been added.
+ *
+ * @author Trent Summerlin
+ */
+public class ParityEncoder {
+
+	private final int[] seqNumbers;
+	private final byte[] parity;
+	private int count;
+	private int length;
+	private int parityLength;
+
+	public ParityEncoder(int groupSize, int maximumTransferUnit) {
+		this.seqNumbers = new int[groupSize];
+		this.parity = new byte[maximumTransferUnit - ParityPacket.getHeaderLength(groupSize)];
+	}
+
+	/**
+	 * Returns the size of the group
+	 * 
+	 * @return int
+	 */
+	public int getGroupSize() {
+		return seqNumbers.length;
+	}
+
+	/**
+	 * Returns the largest a <code>CustomPacket</code> can be and still be
+	 * protected, so its parity packet fits inside of the MTU
+	 * 
+	 * @return int
+	 */
+	public int getMaximumSize() {
+		return parity.length;
+	}
+
+	/**
+	 * Adds an encoded <code>CustomPacket</code> to the current group, returns
+	 * <code>true</code> if the group is now full. Packets that are too big to
+	 * be protected are skipped.
+	 * 
+	 * @param custom
+	 * @return boolean
+	 */
+	public boolean add(CustomPacket custom) {
+		int size = custom.size();
+		if (size > parity.length) {
+			return false;
+		}
+
+		byte[] data = custom.backingArray();
+		for (int i = 0; i < size; i++) {
+			parity[i] ^= data[i];
+		}
+		seqNumbers[count++] = custom.seqNumber;
+		this.length ^= size;
+		this.parityLength = Math.max(parityLength, size);
+		return count >= seqNumbers.length;
+	}
+
+	/**
+	 * Creates the parity packet for the current group and starts a new one
+	 * 
+	 * @return ParityPacket
+	 */
+	public ParityPacket finish() {
+		ParityPacket packet = new ParityPacket();
+		packet.seqNumbers = new int[count];
+		System.arraycopy(seqNumbers, 0, packet.seqNumbers, 0, count);
+		packet.length = this.length;
+		packet.parity = this.parity;
+		packet.parityLength = this.parityLength;
+		packet.encode();
+
+		// Reset the group
+		for (int i = 0; i < parityLength; i++) {
+			parity[i] = 0;
+		}
+		this.count = 0;
+		this.length = 0;
+		this.parityLength = 0;
+		return packet;
+	}
+
+}
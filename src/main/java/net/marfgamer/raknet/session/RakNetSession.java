@@ -35,24 +35,33 @@ import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.socket.DatagramPacket;
 import net.marfgamer.raknet.RakNet;
 import net.marfgamer.raknet.exception.RakNetException;
+import net.marfgamer.raknet.exception.packet.InvalidOrderChannelException;
+import net.marfgamer.raknet.exception.packet.PacketNotAcknowledgedException;
 import net.marfgamer.raknet.exception.packet.PacketQueueOverloadException;
 import net.marfgamer.raknet.exception.packet.RecursiveSplitException;
 import net.marfgamer.raknet.exception.packet.SplitPacketQueueException;
 import net.marfgamer.raknet.exception.packet.UnexpectedPacketException;
 import net.marfgamer.raknet.protocol.Message;
+import net.marfgamer.raknet.protocol.Priority;
 import net.marfgamer.raknet.protocol.Reliability;
 import net.marfgamer.raknet.protocol.identifier.MessageIdentifiers;
 import net.marfgamer.raknet.protocol.raknet.internal.Acknowledge;
 import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.DeliveryReceipt;
 import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.ParityPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.Record;
+import net.marfgamer.raknet.utils.SerialUtils;
 
 /**
  * Represents a session in RakNet, used by the internal handlers to easily track
@@ -60,7 +69,7 @@ import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
  *
  * @author Trent Summerlin
  */
-public abstract class RakNetSession implements RakNet, MessageIdentifiers, Reliability.INTERFACE {
+public abstract class RakNetSession implements RakNet, MessageIdentifiers, Reliability.INTERFACE, Priority.INTERFACE {
 
 	// Channel data
 	private final Channel channel;
@@ -70,10 +79,11 @@ public abstract class RakNetSession implements RakNet, MessageIdentifiers, Relia
 	private long sessionId = -1;
 	private short maximumTransferUnit = MINIMUM_TRANSFER_UNIT;
 	private long latency = -1;
+	private double roundTripTime = -1;
+	private double roundTripTimeVariance;
 
 	// Packet sequencing data
 	private int sendSeqNumber;
-	private int receiveSeqNumber;
 	private long lastSendTime;
 	private long lastReceiveTime;
 	private int receivedPacketsThisSecond;
@@ -81,22 +91,88 @@ public abstract class RakNetSession implements RakNet, MessageIdentifiers, Relia
 	// Queue data
 	private int splitId;
 	private int sendMessageIndex;
-	private int[] sendIndex;
-	private int[] receiveIndex;
-	private final ArrayList<Integer> receivedCustoms;
-	private final ConcurrentHashMap<Integer, CustomPacket> reliableQueue;
-	private final ConcurrentHashMap<Integer, CustomPacket> recoveryQueue;
-	private final ConcurrentHashMap<Integer, HashMap<Integer, EncapsulatedPacket>> splitQueue;
+	private int[] sendOrderIndex;
+	private int[] sendSequenceIndex;
+	private int[] receiveSequenceIndex;
+	private final OrderingQueue[] orderingQueues;
+	private final OrderWindow[] orderWindows;
+	private final ReceiveWindow receiveWindow;
+	private final ReceiveWindow messageWindow;
+	private final ArrayList<Record> acknowledgeQueue;
+	private final NackQueue nackQueue;
+	private long nackDelay;
+	private boolean nackScheduled;
+	private final Runnable nackTask;
+	private final SendWindow sendWindow;
+	private int retransmissionBackoff;
+	private final LinkedHashMap<Integer, SplitPacket> splitQueue;
+	private int splitQueueSize;
+	private int splitBudget;
+	private boolean splitExpiryScheduled;
+	private final Runnable splitExpiryTask;
+	private long expiredSplits;
+	private long evictedSplits;
+
+	// Send queue data
+	private long flushDelay;
+	private boolean flushScheduled;
+	private final Runnable flushTask;
+	private final SendQueue sendQueue;
+	private CongestionController congestionController;
+	private long pacingRate;
+	private Pacer pacer;
+	private final PriorityQueue<DeliveryReceipt> confirmations;
+	private long confirmationTimeout;
+	private int lowWatermark;
+	private int highWatermark;
+	private boolean writable;
+	private BackpressurePolicy backpressurePolicy;
+	private long droppedPackets;
+	private long expiredPackets;
+	private final HashMap<Long, EncapsulatedPacket> coalescing;
+	private long coalescedPackets;
+
+	// Forward error correction data
+	private ParityEncoder parityEncoder;
+	private ParityDecoder parityDecoder;
+	private long recoveredPackets;
+	private long unrecoverablePackets;
 
 	public RakNetSession(Channel channel, InetSocketAddress address) {
 		this.channel = channel;
 		this.address = address;
-		this.sendIndex = new int[32];
-		this.receiveIndex = new int[32];
-		this.receivedCustoms = new ArrayList<Integer>();
-		this.reliableQueue = new ConcurrentHashMap<Integer, CustomPacket>();
-		this.recoveryQueue = new ConcurrentHashMap<Integer, CustomPacket>();
-		this.splitQueue = new ConcurrentHashMap<Integer, HashMap<Integer, EncapsulatedPacket>>();
+		this.sendOrderIndex = new int[MAX_CHANNELS];
+		this.sendSequenceIndex = new int[MAX_CHANNELS];
+		this.receiveSequenceIndex = new int[MAX_CHANNELS];
+		this.orderingQueues = new OrderingQueue[MAX_CHANNELS];
+		for (int i = 0; i < orderingQueues.length; i++) {
+			orderingQueues[i] = new OrderingQueue(MAX_ORDERED_PACKETS_PER_CHANNEL);
+		}
+		this.orderWindows = new OrderWindow[MAX_CHANNELS];
+		for (int i = 0; i < orderWindows.length; i++) {
+			orderWindows[i] = new OrderWindow(MAX_ORDERED_PACKETS_PER_CHANNEL);
+		}
+		this.receiveWindow = new ReceiveWindow(RECEIVE_WINDOW_SIZE);
+		this.messageWindow = new ReceiveWindow(MESSAGE_WINDOW_SIZE);
+		this.acknowledgeQueue = new ArrayList<Record>();
+		this.nackQueue = new NackQueue(RECEIVE_WINDOW_SIZE);
+		this.nackDelay = NACK_DELAY;
+		this.nackTask = () -> this.sendNotAcknowledge();
+		this.sendWindow = new SendWindow(SEND_WINDOW_SIZE);
+		this.splitQueue = new LinkedHashMap<Integer, SplitPacket>(16, 0.75F, true);
+		this.splitBudget = MAX_SPLIT_BYTES;
+		this.splitExpiryTask = () -> this.expireSplits();
+		this.flushTask = () -> this.flush();
+		this.sendQueue = new SendQueue();
+		this.congestionController = new DefaultCongestionController();
+		this.confirmations = new PriorityQueue<DeliveryReceipt>(11,
+				(a, b) -> Long.compare(a.getDeadline(), b.getDeadline()));
+		this.confirmationTimeout = CONFIRMATION_TIMEOUT;
+		this.lowWatermark = SEND_QUEUE_LOW_WATERMARK;
+		this.highWatermark = SEND_QUEUE_HIGH_WATERMARK;
+		this.writable = true;
+		this.backpressurePolicy = BackpressurePolicy.QUEUE;
+		this.coalescing = new HashMap<Long, EncapsulatedPacket>();
 	}
 
 	/**
@@ -160,6 +236,9 @@ public abstract class RakNetSession implements RakNet, MessageIdentifiers, Relia
 	 */
 	public void setMaximumTransferUnit(short maximumTransferUnit) {
 		this.maximumTransferUnit = maximumTransferUnit;
+		if (parityEncoder != null) {
+			this.parityEncoder = new ParityEncoder(parityEncoder.getGroupSize(), maximumTransferUnit);
+		}
 	}
 
 	/**
@@ -180,6 +259,134 @@ public abstract class RakNetSession implements RakNet, MessageIdentifiers, Relia
 		this.latency = latency;
 	}
 
+	/**
+	 * Returns the smoothed round trip time measured from how long it takes
+	 * for packets to be acknowledged, or <code>-1</code> if no packets have
+	 * been acknowledged yet
+	 * 
+	 * @return long
+	 */
+	public long getRoundTripTime() {
+		return (long) this.roundTripTime;
+	}
+
+	/**
+	 * Returns the variance of the round trip time
+	 * 
+	 * @return long
+	 */
+	public long getRoundTripTimeVariance() {
+		return (long) this.roundTripTimeVariance;
+	}
+
+	/**
+	 * Returns how long to wait for a packet to be acknowledged before it is
+	 * resent, not counting the back-off for packets that have already been
+	 * resent
+	 * 
+	 * @return long
+	 */
+	public long getRetransmissionTimeout() {
+		if (roundTripTime < 0) {
+			return INITIAL_RETRANSMISSION_TIMEOUT;
+		}
+		long timeout = (long) (roundTripTime + Math.max(1.0D, roundTripTimeVariance * 4));
+		return Math.min(Math.max(timeout, MINIMUM_RETRANSMISSION_TIMEOUT), MAXIMUM_RETRANSMISSION_TIMEOUT);
+	}
+
+	/**
+	 * Updates the smoothed round trip time and its variance with a new
+	 * measurement
+	 * 
+	 * @param sample
+	 */
+	private void updateRoundTripTime(long sample) {
+		if (roundTripTime < 0) {
+			this.roundTripTime = sample;
+			this.roundTripTimeVariance = sample / 2.0D;
+		} else {
+			this.roundTripTimeVariance = (0.75D * roundTripTimeVariance) + (0.25D * Math.abs(roundTripTime - sample));
+			this.roundTripTime = (0.875D * roundTripTime) + (0.125D * sample);
+		}
+		congestionController.onRoundTripTime((long) roundTripTime);
+	}
+
+	/**
+	 * Returns the session's congestion controller
+	 * 
+	 * @return CongestionController
+	 */
+	public CongestionController getCongestionController() {
+		return this.congestionController;
+	}
+
+	/**
+	 * Sets the session's congestion controller
+	 * 
+	 * @param congestionController
+	 */
+	public synchronized void setCongestionController(CongestionController congestionController) {
+		if (congestionController == null) {
+			throw new IllegalArgumentException("Congestion controller can't be null");
+		}
+		this.congestionController = congestionController;
+	}
+
+	/**
+	 * Returns how many bytes of split packets are waiting for the rest of
+	 * their splits to arrive, including a fixed overhead for every split the
+	 * waiting split packets can hold
+	 * 
+	 * @return int
+	 */
+	public int getSplitQueueSize() {
+		return this.splitQueueSize;
+	}
+
+	/**
+	 * Returns how many bytes of split packets can be waiting for the rest of
+	 * their splits to arrive at once
+	 * 
+	 * @return int
+	 */
+	public int getSplitBudget() {
+		return this.splitBudget;
+	}
+
+	/**
+	 * Sets how many bytes of split packets can be waiting for the rest of
+	 * their splits to arrive at once, once this is reached the least recently
+	 * updated unreliable split packets are evicted
+	 * 
+	 * @param splitBudget
+	 */
+	public void setSplitBudget(int splitBudget) {
+		if (splitBudget <= 0) {
+			throw new IllegalArgumentException("Split budget must be greater than zero");
+		}
+		this.splitBudget = splitBudget;
+	}
+
+	/**
+	 * Returns how many unreliable split packets have been removed because the
+	 * rest of their splits didn't arrive in time
+	 * 
+	 * @return long
+	 */
+	public long getExpiredSplitCount() {
+		return this.expiredSplits;
+	}
+
+	/**
+	 * Returns how many split packets have been evicted to stay within the
+	 * split budget
+	 * 
+	 * @return long
+	 */
+	public long getEvictedSplitCount() {
+		return this.evictedSplits;
+	}
+
 	/**
 	 * Returns the amount of packets that have been received this second
 	 * 
@@ -236,264 +443,1666 @@ public abstract class RakNetSession implements RakNet, MessageIdentifiers, Relia
 	}
 
 	/**
-	 * Sends an <code>EncapsulatedPacket</code> wrapped in a
-	 * <code>CustomPacket</code>.
+	 * Returns how long queued packets can wait in milliseconds before they are
+	 * packed into a <code>CustomPacket</code> and sent, <code>0</code> means
+	 * they are sent at the end of the current event loop tick
+	 * 
+	 * @return long
+	 */
+	public long getFlushDelay() {
+		return this.flushDelay;
+	}
+
+	/**
+	 * Sets how long queued packets can wait in milliseconds before they are
+	 * packed into a <code>CustomPacket</code> and sent, <code>0</code> means
+	 * they are sent at the end of the current event loop tick
+	 * 
+	 * @param flushDelay
+	 */
+	public void setFlushDelay(long flushDelay) {
+		this.flushDelay = (flushDelay > 0 ? flushDelay : 0);
+	}
+
+	/**
+	 * Queues an <code>EncapsulatedPacket</code> to be sent wrapped in a
+	 * <code>CustomPacket</code>, it will be sent along with any other queued
+	 * packets once the send queue is flushed
+	 * 
+	 * @param encapsulated
+	 * @param priority
+	 */
+	public final synchronized void sendEncapsulated(EncapsulatedPacket encapsulated, Priority priority) {
+		this.queueEncapsulated(encapsulated, priority);
+		this.scheduleFlush(priority);
+	}
+
+	/**
+	 * Queues an <code>EncapsulatedPacket</code> to be sent wrapped in a
+	 * <code>CustomPacket</code> with the <code>MEDIUM</code> priority
 	 * 
 	 * @param encapsulated
 	 */
 	public final void sendEncapsulated(EncapsulatedPacket encapsulated) {
+		this.sendEncapsulated(encapsulated, MEDIUM);
+	}
+
+	/**
+	 * Queues an <code>EncapsulatedPacket</code> to be sent wrapped in a
+	 * <code>CustomPacket</code> without scheduling the send queue to be
+	 * flushed, returns <code>false</code> if the packet was dropped instead
+	 * 
+	 * @param encapsulated
+	 * @param priority
+	 * @return boolean
+	 */
+	private boolean queueEncapsulated(EncapsulatedPacket encapsulated, Priority priority) {
+		if (encapsulated.reliability.hasAckReceipt() && encapsulated.receipt == null) {
+			encapsulated.receipt = new DeliveryReceipt(encapsulated);
+		}
+
+		// Drop unreliable packets if the policy says to
+		if (writable == false && backpressurePolicy == BackpressurePolicy.DROP_UNRELIABLE
+				&& !encapsulated.reliability.isReliable()) {
+			this.droppedPackets++;
+			if (encapsulated.receipt != null) {
+				this.notifyLost(encapsulated.receipt);
+			}
+			return false;
+		}
+
 		try {
-			this.sendEncapsulated(encapsulated, false);
+			this.sendEncapsulated(encapsulated, priority, false);
 		} catch (RecursiveSplitException e) {
 			e.printStackTrace();
 		}
+		this.updateWritability();
+		return true;
 	}
 
 	/**
-	 * Sends an <code>EncapsulatedPacket</code> wrapped in a
+	 * Queues an <code>EncapsulatedPacket</code> to be sent wrapped in a
 	 * <code>CustomPacket</code>.
 	 * 
 	 * @param encapsulated
+	 * @param priority
 	 * @param recursive
 	 * @throws RecursiveSplitException
 	 */
-	private final void sendEncapsulated(EncapsulatedPacket encapsulated, boolean recursive)
+	private final void sendEncapsulated(EncapsulatedPacket encapsulated, Priority priority, boolean recursive)
 			throws RecursiveSplitException {
+		// Every split of a packet shares the same order index
+		if (!recursive) {
+			if (encapsulated.reliability.isOrdered() || encapsulated.reliability.isSequenced()) {
+				this.checkChannel(encapsulated.orderChannel);
+			}
+			if (encapsulated.reliability.isOrdered()) {
+				encapsulated.orderIndex = this.sendOrderIndex[encapsulated.orderChannel];
+				sendOrderIndex[encapsulated.orderChannel] = SerialUtils.next(encapsulated.orderIndex);
+			} else if (encapsulated.reliability.isSequenced()) {
+				encapsulated.orderIndex = this.sendSequenceIndex[encapsulated.orderChannel];
+				sendSequenceIndex[encapsulated.orderChannel] = SerialUtils.next(encapsulated.orderIndex);
+			} else {
+				encapsulated.orderChannel = 0;
+				encapsulated.orderIndex = 0;
+			}
+		}
+
 		// If packet is too big, split it up
+		int maximumSize = this.getMaximumCustomSize();
 		if (CustomPacket.HEADER_LENGTH + EncapsulatedPacket.getHeaderLength(encapsulated.reliability, false)
-				+ encapsulated.payload.length > this.maximumTransferUnit) {
+				+ encapsulated.getPayloadLength() > maximumSize) {
 			if (!recursive) {
-				EncapsulatedPacket[] splitEncapsulated = EncapsulatedPacket.split(encapsulated, maximumTransferUnit,
-						splitId++);
+				// The splits share a receipt so they expire together
+				if (encapsulated.expirationTime > 0 && encapsulated.receipt == null) {
+					encapsulated.receipt = new DeliveryReceipt(encapsulated);
+				}
+				EncapsulatedPacket[] splitEncapsulated = EncapsulatedPacket.split(encapsulated, maximumSize,
+						splitId);
+				this.splitId = (splitId + 1) & 0xFFFF; // Split ID's are sent as shorts
 				for (EncapsulatedPacket split : splitEncapsulated) {
-					this.sendEncapsulated(split, true);
+					this.sendEncapsulated(split, priority, true);
 				}
 			} else {
 				throw new RecursiveSplitException(this);
 			}
 		} else {
-			// Update session data
-			if (encapsulated.reliability.isReliable()) {
-				encapsulated.messageIndex = sendMessageIndex++;
-			} else {
-				encapsulated.messageIndex = 0;
+			// The message index is given out once the packet is sent
+			encapsulated.messageIndex = 0;
+			encapsulated.indexed = false;
+
+			// Wait for the queue to be flushed
+			if (encapsulated.receipt != null) {
+				encapsulated.receipt.expect();
 			}
-			if (encapsulated.reliability.isOrdered() || encapsulated.reliability.isSequenced()) {
-				encapsulated.orderIndex = this.sendIndex[encapsulated.orderChannel]++;
+			sendQueue.add(encapsulated, priority);
+		}
+	}
+
+	/**
+	 * Schedules the send queue to be flushed on the channel's event loop if it
+	 * has not been already
+	 */
+	private void scheduleFlush(Priority priority) {
+		if (priority == IMMEDIATE) {
+			// Don't wait for the flush delay
+			channel.eventLoop().execute(flushTask);
+		} else {
+			this.scheduleFlush();
+		}
+	}
+
+	/**
+	 * Schedules the send queue to be flushed after the flush delay, unless it
+	 * is already scheduled to be flushed
+	 */
+	private void scheduleFlush() {
+		if (flushScheduled == false) {
+			this.flushScheduled = true;
+			if (flushDelay > 0) {
+				channel.eventLoop().schedule(flushTask, flushDelay, TimeUnit.MILLISECONDS);
 			} else {
-				encapsulated.orderChannel = 0;
-				encapsulated.orderIndex = 0;
+				channel.eventLoop().execute(flushTask);
 			}
+		}
+	}
 
-			// Send CustomPacket
-			CustomPacket custom = new CustomPacket();
-			custom.seqNumber = this.sendSeqNumber++;
-			custom.packets.add(encapsulated);
-			custom.encode();
-			this.sendRaw(custom);
-			if (encapsulated.reliability.isReliable()) {
-				reliableQueue.put(custom.seqNumber, custom);
+	/**
+	 * Returns the pacing rate in bytes per second,
+	 * <code>PACING_DISABLED</code> if pacing is disabled or
+	 * <code>PACING_AUTOMATIC</code> if the rate is based on the congestion
+	 * window and round trip time
+	 * 
+	 * @return long
+	 */
+	public long getPacingRate() {
+		return this.pacingRate;
+	}
+
+	/**
+	 * Sets the pacing rate in bytes per second, packets sent faster than this
+	 * will be spread out over time instead of being sent all at once. Use
+	 * <code>PACING_DISABLED</code> to send packets as soon as the congestion
+	 * window allows and <code>PACING_AUTOMATIC</code> to send the congestion
+	 * window once every round trip.
+	 * 
+	 * @param pacingRate
+	 */
+	public synchronized void setPacingRate(long pacingRate) {
+		if (pacingRate < PACING_AUTOMATIC) {
+			throw new IllegalArgumentException("Invalid pacing rate");
+		}
+		this.pacingRate = pacingRate;
+		this.pacer = null;
+		if (pacingRate > 0) {
+			this.pacer = new Pacer(pacingRate, maximumTransferUnit * PACING_BURST);
+		}
+	}
+
+	/**
+	 * Returns the pacer used to spread out sent packets, or <code>null</code>
+	 * if pacing is disabled or there is not enough data to pace automatically
+	 * yet
+	 * 
+	 * @return Pacer
+	 */
+	private Pacer updatePacer() {
+		if (pacingRate == PACING_AUTOMATIC && roundTripTime >= 0) {
+			long rate = (long) (congestionController.getCongestionWindow() * maximumTransferUnit * 1000.0D
+					* PACING_GAIN / Math.max(roundTripTime, 1.0D));
+			if (pacer == null) {
+				this.pacer = new Pacer(rate, maximumTransferUnit * PACING_BURST);
+			} else {
+				pacer.setRate(rate);
 			}
-			recoveryQueue.put(custom.seqNumber, custom);
 		}
+		if (pacer != null) {
+			pacer.setCapacity(maximumTransferUnit * PACING_BURST);
+		}
+		return this.pacer;
 	}
 
 	/**
-	 * Sends an EncapsulatedPacket using the specified packet and reliability
+	 * Returns the amount of packets waiting in the send queue for room in the
+	 * congestion window
 	 * 
-	 * @param packet
-	 * @param reliability
+	 * @return int
 	 */
-	public final void sendPacket(Reliability reliability, Message packet) {
-		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
-		encapsulated.reliability = reliability;
-		encapsulated.payload = packet.array();
-		this.sendEncapsulated(encapsulated);
+	public final int getSendQueueSize() {
+		return sendQueue.size();
 	}
 
 	/**
-	 * Sends raw data to the session
+	 * Returns how many bytes of packets are waiting in the send queue for
+	 * room in the congestion window
 	 * 
-	 * @param packet
+	 * @return int
 	 */
-	public final void sendRaw(Message packet) {
-		channel.writeAndFlush(new DatagramPacket(packet.buffer(), address));
-		this.lastSendTime = System.currentTimeMillis();
+	public final int getSendQueueBytes() {
+		return sendQueue.bytes();
 	}
 
 	/**
-	 * Returns all reliable packets that have not yet been Acknowledged
+	 * Returns whether or not the session is writable, packets can still be
+	 * sent when the session is not writable but they will have to wait in
+	 * the send queue for a while. Unreliable packets are dropped instead if
+	 * the backpressure policy is <code>DROP_UNRELIABLE</code>.
 	 * 
-	 * @return CustomPacket[]
+	 * @return boolean
 	 */
-	public CustomPacket[] getReliableQueue() {
-		return this.reliableQueue.values().toArray(new CustomPacket[reliableQueue.size()]);
+	public boolean isWritable() {
+		return this.writable;
 	}
 
 	/**
-	 * Returns all packets that have not yet been Acknowledged
+	 * Returns how many bytes the send queue must drop below for the session to
+	 * become writable again
 	 * 
-	 * @return CustomPacket[]
+	 * @return int
 	 */
-	public final CustomPacket[] getRecoveryQueue() {
-		return this.recoveryQueue.values().toArray(new CustomPacket[recoveryQueue.size()]);
+	public int getLowWatermark() {
+		return this.lowWatermark;
 	}
 
 	/**
-	 * Removes as many unreliable packets as possible until the recovery queue
-	 * size is smaller than the maximum amount of packets in a queue or there
-	 * are no more unreliable packets
+	 * Returns how many bytes the send queue must go over for the session to
+	 * stop being writable
+	 * 
+	 * @return int
 	 */
-	public final void cleanRecoveryQueue() {
-		for (CustomPacket custom : recoveryQueue.values()) {
-			if (custom.packets.size() > 0) {
-				// Remove CustomPacket based on reliability
-				EncapsulatedPacket encapsulated = custom.packets.get(0);
-				if (!encapsulated.reliability.isReliable() && recoveryQueue.size() > MAX_PACKETS_PER_QUEUE) {
-					recoveryQueue.remove(custom.seqNumber);
-				}
+	public int getHighWatermark() {
+		return this.highWatermark;
+	}
 
-				// Buffer is no longer overflowing
-				if (recoveryQueue.size() <= MAX_PACKETS_PER_QUEUE) {
-					break;
-				}
-			} else {
-				// Glitched recovery packet!
-				recoveryQueue.remove(custom.seqNumber);
-			}
+	/**
+	 * Sets the low and high watermarks of the send queue in bytes
+	 * 
+	 * @param lowWatermark
+	 * @param highWatermark
+	 */
+	public synchronized void setWatermarks(int lowWatermark, int highWatermark) {
+		if (lowWatermark < 0 || highWatermark < lowWatermark) {
+			throw new IllegalArgumentException("Low watermark must be between zero and the high watermark");
 		}
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+		this.updateWritability();
 	}
 
 	/**
-	 * Removes all packets in the ACK packet from the recovery queue, as they
-	 * have already been acknowledged
+	 * Returns what is done with unreliable packets sent while the session is
+	 * not writable
 	 * 
-	 * @param ack
-	 * @throws UnexpectedPacketException
+	 * @return BackpressurePolicy
 	 */
-	public final void handleAck(Acknowledge ack) throws UnexpectedPacketException {
-		if (ack.getId() == ID_ACK) {
-			for (int packet : ack.packets) {
-				reliableQueue.remove(packet);
-				recoveryQueue.remove(packet);
-			}
-		} else {
-			throw new UnexpectedPacketException(this, ID_ACK, ack.getId());
-		}
+	public BackpressurePolicy getBackpressurePolicy() {
+		return this.backpressurePolicy;
 	}
 
 	/**
-	 * Resends all packets with the ID's contained in the NACK packet
+	 * Sets what is done with unreliable packets sent while the session is not
+	 * writable
 	 * 
-	 * @param nack
-	 * @throws UnexpectedPacketException
+	 * @param backpressurePolicy
 	 */
-	public final void handleNack(Acknowledge nack) throws UnexpectedPacketException {
-		if (nack.getId() == ID_NACK) {
-			int[] packets = nack.packets;
-			for (int i = 0; i < packets.length; i++) {
-				CustomPacket recovered = recoveryQueue.get(packets[i]);
-				if (recovered != null) {
-					this.sendRaw(recovered);
-				}
-			}
-		} else {
-			throw new UnexpectedPacketException(this, ID_NACK, nack.getId());
+	public void setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+		if (backpressurePolicy == null) {
+			throw new IllegalArgumentException("Backpressure policy can't be null");
 		}
+		this.backpressurePolicy = backpressurePolicy;
 	}
 
-	public final void handleCustom0(CustomPacket custom) throws RakNetException {
-		// Acknowledge packet even if it has been received before
-		Acknowledge ack = new Acknowledge(ID_ACK);
-		ack.packets = new int[] { custom.seqNumber };
-		ack.encode();
-		this.sendRaw(ack);
-
-		// Make sure this packet wasn't already received
-		if (!receivedCustoms.contains(custom.seqNumber)) {
-			// Make sure none of the packets were lost
-			if (custom.seqNumber - receiveSeqNumber > 1) {
-				Acknowledge nack = new Acknowledge(ID_NACK);
-				int[] missing = new int[custom.seqNumber - receiveSeqNumber - 1];
-				for (int i = 0; i < missing.length; i++) {
-					missing[i] = receiveSeqNumber + i + 1;
-				}
-				nack.packets = missing;
-				nack.encode();
-				this.sendRaw(nack);
-			}
-			this.receiveSeqNumber = custom.seqNumber;
-
-			// Handle encapsulated packets
-			for (EncapsulatedPacket encapsulated : custom.packets) {
-				this.handleEncapsulated0(encapsulated);
-			}
-			receivedCustoms.add(custom.seqNumber);
-		}
+	/**
+	 * Returns how many unreliable packets have been dropped because the
+	 * session was not writable
+	 * 
+	 * @return long
+	 */
+	public long getDroppedPacketCount() {
+		return this.droppedPackets;
 	}
 
-	private final void handleEncapsulated0(EncapsulatedPacket encapsulated) throws RakNetException {
-		// Handle packet order based on it's reliability
-		Reliability reliability = encapsulated.reliability;
+	/**
+	 * Returns how many <code>CustomPackets</code> are protected by each parity
+	 * packet, or <code>PARITY_DISABLED</code> if forward error correction is
+	 * disabled
+	 * 
+	 * @return int
+	 */
+	public int getParityGroupSize() {
+		return (parityEncoder != null ? parityEncoder.getGroupSize() : PARITY_DISABLED);
+	}
 
-		if (reliability.isOrdered()) {
-			// TODO: Ordered packets
-		} else if (reliability.isSequenced()) {
-			if (encapsulated.orderIndex < receiveIndex[encapsulated.orderChannel]) {
-				return; // Packet is old, no error needed
-			}
-			receiveIndex[encapsulated.orderChannel] = encapsulated.orderIndex + 1;
+	/**
+	 * Enables forward error correction, a parity packet is sent after every
+	 * group of <code>CustomPackets</code> of the specified size that only
+	 * contain unreliable packets. The other side can then rebuild any single
+	 * packet lost from a group without it having to be resent, at the cost of
+	 * sending one extra packet per group. Use <code>PARITY_DISABLED</code> to
+	 * disable it again.
+	 * 
+	 * @param groupSize
+	 */
+	public synchronized void setParityGroupSize(int groupSize) {
+		if (groupSize == PARITY_DISABLED) {
+			this.parityEncoder = null;
+		} else if (groupSize >= MINIMUM_PARITY_GROUP_SIZE && groupSize <= MAX_PARITY_GROUP_SIZE) {
+			this.parityEncoder = new ParityEncoder(groupSize, maximumTransferUnit);
+		} else {
+			throw new IllegalArgumentException("Parity group size must be between " + MINIMUM_PARITY_GROUP_SIZE
+					+ " and " + MAX_PARITY_GROUP_SIZE);
 		}
+	}
 
-		if (encapsulated.split == true) {
-			// Check if split packet exists
-			if (!splitQueue.containsKey(encapsulated.splitId)) {
-				// Check queues
-				if (splitQueue.size() > MAX_SPLITS_PER_QUEUE) {
-					throw new PacketQueueOverloadException(this, "split queue", MAX_SPLITS_PER_QUEUE);
-				}
-				if (encapsulated.splitCount > MAX_SPLIT_COUNT) {
-					throw new SplitPacketQueueException(this, encapsulated);
-				}
+	/**
+	 * Returns how many lost packets have been rebuilt from parity packets
+	 * 
+	 * @return long
+	 */
+	public long getRecoveredPacketCount() {
+		return this.recoveredPackets;
+	}
 
-				// Create split packet
-				HashMap<Integer, EncapsulatedPacket> split = new HashMap<Integer, EncapsulatedPacket>();
-				split.put(encapsulated.splitIndex, encapsulated);
-				splitQueue.put(encapsulated.splitId, split);
-			} else {
-				// Update split packet
-				HashMap<Integer, EncapsulatedPacket> split = splitQueue.get(encapsulated.splitId);
-				split.put(encapsulated.splitIndex, encapsulated);
-				splitQueue.put(encapsulated.splitId, split);
-			}
+	/**
+	 * Returns how many lost packets could not be rebuilt from parity packets
+	 * because more than one packet in their group was lost
+	 * 
+	 * @return long
+	 */
+	public long getUnrecoverablePacketCount() {
+		return this.unrecoverablePackets;
+	}
 
-			// Check if split packet is complete
-			if (splitQueue.get(encapsulated.splitId).size() == encapsulated.splitCount) {
-				// Write raw data to buffer
-				ByteBuf b = Unpooled.buffer();
-				int size = 0;
-				HashMap<Integer, EncapsulatedPacket> packets = splitQueue.get(encapsulated.splitId);
-				for (int i = 0; i < encapsulated.splitCount; i++) {
-					b.writeBytes(packets.get(i).payload);
-					size += packets.get(i).payload.length;
-				}
-				byte[] data = Arrays.copyOfRange(b.array(), 0, size);
-				splitQueue.remove(encapsulated.splitId);
+	/**
+	 * Returns the largest a <code>CustomPacket</code> can be, leaving room for
+	 * the parity packet's header if forward error correction is enabled
+	 * 
+	 * @return int
+	 */
+	private int getMaximumCustomSize() {
+		return (parityEncoder != null ? parityEncoder.getMaximumSize() : maximumTransferUnit);
+	}
 
-				// Create EncapsulatedPacket and handle it
-				EncapsulatedPacket ep = new EncapsulatedPacket();
-				ep.payload = data;
-				ep.orderChannel = encapsulated.orderChannel;
-				ep.reliability = encapsulated.reliability;
-				this.handleEncapsulated0(ep);
-			}
-			return;
+	/**
+	 * Checks if the send queue has crossed one of the watermarks and calls
+	 * <code>onWritabilityChanged()</code> if it has
+	 */
+	private void updateWritability() {
+		int bytes = sendQueue.bytes();
+		if (writable == true && bytes > highWatermark) {
+			this.writable = false;
+			this.onWritabilityChanged(false);
+		} else if (writable == false && bytes < lowWatermark) {
+			this.writable = true;
+			this.onWritabilityChanged(true);
 		}
+	}
 
-		// Handle packet
-		this.handleEncapsulated(encapsulated);
+	/**
+	 * Returns the amount of packets with the specified priority waiting in
+	 * the send queue for room in the congestion window
+	 * 
+	 * @param priority
+	 * @return int
+	 */
+	public final int getSendQueueSize(Priority priority) {
+		return sendQueue.size(priority);
 	}
 
-	public abstract void handleEncapsulated(EncapsulatedPacket encapsulated);
+	/**
+	 * Returns the amount of packets on the specified order channel waiting in
+	 * the send queue for room in the congestion window
+	 * 
+	 * @param orderChannel
+	 * @return int
+	 */
+	public final synchronized int getSendQueueSize(int orderChannel) {
+		this.checkChannel(orderChannel);
+		return sendQueue.size(orderChannel);
+	}
+
+	/**
+	 * Returns the weight of the specified order channel
+	 * 
+	 * @param orderChannel
+	 * @return int
+	 */
+	public final synchronized int getChannelWeight(int orderChannel) {
+		this.checkChannel(orderChannel);
+		return sendQueue.getWeight(orderChannel);
+	}
+
+	/**
+	 * Sets the weight of the specified order channel. Channels with packets
+	 * waiting take turns sending them, and each turn a channel may send up to
+	 * <code>CHANNEL_QUANTUM</code> bytes for every point of its weight. This
+	 * way a channel sending large amounts of data can't hold back the others,
+	 * while channels with nothing to send leave their share to the rest.
+	 * 
+	 * @param orderChannel
+	 * @param weight
+	 */
+	public final synchronized void setChannelWeight(int orderChannel, int weight) {
+		this.checkChannel(orderChannel);
+		if (weight < 1 || weight > MAX_CHANNEL_WEIGHT) {
+			throw new IllegalArgumentException("Weight must be between 1 and " + MAX_CHANNEL_WEIGHT);
+		}
+		sendQueue.setWeight(orderChannel, weight);
+	}
+
+	/**
+	 * Packs as many queued <code>EncapsulatedPackets</code> as possible into
+	 * each <code>CustomPacket</code> without going over the MTU size and sends
+	 * them, packets that don't fit in the congestion window are left in the
+	 * queue until more packets have been acknowledged. Packets that expired
+	 * while waiting in the queue are dropped instead of being sent.
+	 */
+	public final synchronized void flush() {
+		this.flushScheduled = false;
+		if (sendQueue.isEmpty()) {
+			return;
+		}
+
+		boolean sent = false;
+		long currentTime = System.currentTimeMillis();
+		int maximumSize = this.getMaximumCustomSize();
+		Pacer pacer = this.updatePacer();
+		while (!sendQueue.isEmpty() && sendWindow.getSize() < congestionController.getCongestionWindow()) {
+			// Wait for the pacer if packets are being sent too quickly
+			if (pacer != null) {
+				long nanoTime = System.nanoTime();
+				if (!pacer.canSend(nanoTime)) {
+					this.flushScheduled = true;
+					channel.eventLoop().schedule(flushTask, pacer.getDelay(nanoTime), TimeUnit.NANOSECONDS);
+					break;
+				}
+			}
+
+			CustomPacket custom = new CustomPacket();
+			int size = CustomPacket.HEADER_LENGTH;
+			boolean reliable = false;
+			while (!sendQueue.isEmpty()) {
+				// Drop packets that are no longer worth sending
+				if (sendQueue.peek().isExpired(currentTime)) {
+					this.expireEncapsulated(this.pollEncapsulated());
+					continue;
+				}
+
+				// Don't send more ordered packets than the other side can hold
+				EncapsulatedPacket next = sendQueue.peek();
+				if (next.reliability.isOrdered() && !orderWindows[next.orderChannel].canSend(next.orderIndex)) {
+					break;
+				}
+
+				// Stop once the next packet won't fit
+				int encapsulatedSize = sendQueue.peek().calculateSize();
+				if (!custom.packets.isEmpty() && size + encapsulatedSize > maximumSize) {
+					break;
+				}
+
+				// Add packet to the current CustomPacket
+				EncapsulatedPacket encapsulated = this.pollEncapsulated();
+				if (encapsulated.reliability.isOrdered() && encapsulated.indexed == false) {
+					orderWindows[encapsulated.orderChannel].send(encapsulated);
+				}
+				this.indexEncapsulated(encapsulated);
+				if (encapsulated.receipt != null) {
+					encapsulated.receipt.send();
+				}
+				custom.packets.add(encapsulated);
+				size += encapsulatedSize;
+				reliable |= encapsulated.reliability.isReliable();
+			}
+			if (custom.packets.isEmpty()) {
+				break; // Everything left had expired or must wait for an ACK
+			}
+			this.sendCustom(custom, reliable);
+			if (pacer != null) {
+				pacer.consume(size);
+			}
+			sent = true;
+		}
+		if (sent == true) {
+			channel.flush();
+		}
+		this.updateWritability();
+	}
+
+	/**
+	 * Removes the next packet from the send queue, if it was coalesced it can
+	 * no longer be replaced by a newer packet with the same key
+	 * 
+	 * @return EncapsulatedPacket
+	 */
+	private EncapsulatedPacket pollEncapsulated() {
+		EncapsulatedPacket encapsulated = sendQueue.poll();
+		if (encapsulated.coalesced == true) {
+			coalescing.remove(encapsulated.coalesceKey);
+			encapsulated.coalesced = false;
+		}
+		return encapsulated;
+	}
+
+	/**
+	 * Gives a reliable packet the next message index the first time it is
+	 * sent, resent packets keep the index they were first sent with. Giving
+	 * them out as packets leave the queue instead of as they enter it keeps
+	 * the indexes in the order they are sent, no matter how long a packet
+	 * waited in the queue behind packets with a higher priority.
+	 * 
+	 * @param encapsulated
+	 */
+	private void indexEncapsulated(EncapsulatedPacket encapsulated) {
+		if (encapsulated.reliability.isReliable() && encapsulated.indexed == false) {
+			encapsulated.messageIndex = this.sendMessageIndex;
+			encapsulated.indexed = true;
+			this.sendMessageIndex = SerialUtils.next(sendMessageIndex);
+		}
+	}
+
+	/**
+	 * Drops an expired packet and fails its receipt. Ordered packets are
+	 * replaced with an empty packet that keeps their order index, so the
+	 * ordering channel on the other side does not wait for them forever. The
+	 * splits of a packet expire together and share a single replacement.
+	 * 
+	 * @param encapsulated
+	 */
+	private void expireEncapsulated(EncapsulatedPacket encapsulated) {
+		this.expiredPackets++;
+		boolean first = true;
+		if (encapsulated.receipt != null) {
+			first = encapsulated.receipt.lose();
+			if (first == true) {
+				this.notifyLost(encapsulated.receipt);
+			}
+		}
+
+		if (encapsulated.reliability.isOrdered() && first == true) {
+			EncapsulatedPacket placeholder = new EncapsulatedPacket();
+			placeholder.reliability = encapsulated.reliability;
+			placeholder.messageIndex = encapsulated.messageIndex;
+			placeholder.indexed = encapsulated.indexed;
+			placeholder.orderChannel = encapsulated.orderChannel;
+			placeholder.orderIndex = encapsulated.orderIndex;
+			placeholder.payload = new byte[0];
+			sendQueue.resend(placeholder);
+		}
+	}
+
+	/**
+	 * Returns how many packets expired before they could be sent or resent
+	 * 
+	 * @return long
+	 */
+	public long getExpiredPacketCount() {
+		return this.expiredPackets;
+	}
+
+	/**
+	 * Assigns a sequence number to a <code>CustomPacket</code> and writes it
+	 * to the channel without flushing it
+	 * 
+	 * @param custom
+	 * @param reliable
+	 */
+	private void sendCustom(CustomPacket custom, boolean reliable) {
+		custom.seqNumber = this.sendSeqNumber;
+		this.sendSeqNumber = SerialUtils.next(sendSeqNumber);
+		custom.encode();
+
+		// The channel releases the buffer once written, so XOR it in first
+		boolean groupFull = (parityEncoder != null && reliable == false && parityEncoder.add(custom));
+		channel.write(new DatagramPacket(custom.buffer(), address));
+		this.lastSendTime = System.currentTimeMillis();
+		sendWindow.add(custom, reliable, lastSendTime);
+
+		// Send a parity packet after every full group of unreliable packets
+		if (groupFull == true) {
+			ParityPacket parity = parityEncoder.finish();
+			channel.write(new DatagramPacket(parity.buffer(), address));
+			if (pacer != null) {
+				pacer.consume(parity.size());
+			}
+		}
+	}
+
+	/**
+	 * Creates an <code>EncapsulatedPacket</code> that points to the packet's
+	 * data instead of copying it
+	 * 
+	 * @param reliability
+	 * @param orderChannel
+	 * @param packet
+	 * @return EncapsulatedPacket
+	 */
+	private EncapsulatedPacket createEncapsulated(Reliability reliability, int orderChannel, Message packet) {
+		this.checkChannel(orderChannel);
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = reliability;
+		encapsulated.orderChannel = orderChannel;
+		encapsulated.payload = packet.backingArray();
+		encapsulated.payloadLength = packet.size();
+		return encapsulated;
+	}
+
+	/**
+	 * Makes sure the order channel is one that can be used
+	 * 
+	 * @param orderChannel
+	 */
+	private void checkChannel(int orderChannel) {
+		if (orderChannel < 0 || orderChannel >= MAX_CHANNELS) {
+			throw new IllegalArgumentException("Channel must be between 0 and " + (MAX_CHANNELS - 1));
+		}
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet, reliability,
+	 * order channel and priority, the packet's data is not copied until it is
+	 * sent so the packet should not be modified afterwards. Ordered and
+	 * sequenced packets are only ordered against packets on the same channel,
+	 * so a packet waiting to be resent on one channel does not hold up the
+	 * others. The returned packet is passed to the
+	 * <code>PACKET_ACKNOWLEDGED</code> and <code>PACKET_NOT_ACKNOWLEDGED</code>
+	 * hooks if the reliability has an ACK receipt.
+	 * 
+	 * @param reliability
+	 * @param orderChannel
+	 * @param priority
+	 * @param packet
+	 * @return EncapsulatedPacket
+	 */
+	public final EncapsulatedPacket sendPacket(Reliability reliability, int orderChannel, Priority priority,
+			Message packet) {
+		EncapsulatedPacket encapsulated = this.createEncapsulated(reliability, orderChannel, packet);
+		this.sendEncapsulated(encapsulated, priority);
+		return encapsulated;
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet, reliability and
+	 * order channel with the <code>MEDIUM</code> priority
+	 * 
+	 * @param reliability
+	 * @param orderChannel
+	 * @param packet
+	 * @return EncapsulatedPacket
+	 */
+	public final EncapsulatedPacket sendPacket(Reliability reliability, int orderChannel, Message packet) {
+		return this.sendPacket(reliability, orderChannel, MEDIUM, packet);
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet, reliability and
+	 * priority on the default channel
+	 * 
+	 * @param reliability
+	 * @param priority
+	 * @param packet
+	 * @return EncapsulatedPacket
+	 */
+	public final EncapsulatedPacket sendPacket(Reliability reliability, Priority priority, Message packet) {
+		return this.sendPacket(reliability, DEFAULT_CHANNEL, priority, packet);
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet and reliability
+	 * with the <code>MEDIUM</code> priority
+	 * 
+	 * @param reliability
+	 * @param packet
+	 * @return EncapsulatedPacket
+	 */
+	public final EncapsulatedPacket sendPacket(Reliability reliability, Message packet) {
+		return this.sendPacket(reliability, DEFAULT_CHANNEL, MEDIUM, packet);
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet, reliability,
+	 * order channel and priority that is dropped if it has not been sent
+	 * within the specified time to live in milliseconds. Reliable packets are
+	 * not resent once they have expired either, and packets that fail to
+	 * arrive in time are reported as lost to their receipt. A split packet
+	 * expires as a whole, once any of its splits has been sent the rest are
+	 * sent no matter how long it takes.
+	 * 
+	 * @param reliability
+	 * @param orderChannel
+	 * @param priority
+	 * @param packet
+	 * @param timeToLive
+	 * @return EncapsulatedPacket
+	 */
+	public final EncapsulatedPacket sendPacket(Reliability reliability, int orderChannel, Priority priority,
+			Message packet, long timeToLive) {
+		if (timeToLive <= 0) {
+			throw new IllegalArgumentException("Time to live must be greater than zero");
+		}
+		EncapsulatedPacket encapsulated = this.createEncapsulated(reliability, orderChannel, packet);
+		encapsulated.expirationTime = System.currentTimeMillis() + timeToLive;
+		this.sendEncapsulated(encapsulated, priority);
+		return encapsulated;
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet, reliability and
+	 * priority on the default channel that is dropped if it has not been sent
+	 * within the specified time to live in milliseconds
+	 * 
+	 * @param reliability
+	 * @param priority
+	 * @param packet
+	 * @param timeToLive
+	 * @return EncapsulatedPacket
+	 */
+	public final EncapsulatedPacket sendPacket(Reliability reliability, Priority priority, Message packet,
+			long timeToLive) {
+		return this.sendPacket(reliability, DEFAULT_CHANNEL, priority, packet, timeToLive);
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet and reliability
+	 * with the <code>MEDIUM</code> priority that is dropped if it has not been
+	 * sent within the specified time to live in milliseconds
+	 * 
+	 * @param reliability
+	 * @param packet
+	 * @param timeToLive
+	 * @return EncapsulatedPacket
+	 */
+	public final EncapsulatedPacket sendPacket(Reliability reliability, Message packet, long timeToLive) {
+		return this.sendPacket(reliability, DEFAULT_CHANNEL, MEDIUM, packet, timeToLive);
+	}
+
+	/**
+	 * Sends an unreliable packet that replaces any packet with the same key
+	 * that is still waiting in the send queue, such as a state update that
+	 * makes the previous update for the same entity useless. The pending
+	 * packet keeps its place in the queue and its sequence index, only its
+	 * payload is replaced, so a backlog of old updates is never sent. Packets
+	 * already sent are not affected, and coalesced packets must be small
+	 * enough that they don't have to be split.
+	 * 
+	 * @param reliability
+	 * @param orderChannel
+	 * @param priority
+	 * @param key
+	 * @param packet
+	 * @return EncapsulatedPacket
+	 */
+	public final synchronized EncapsulatedPacket sendCoalescedPacket(Reliability reliability, int orderChannel,
+			Priority priority, long key, Message packet) {
+		if (reliability != Reliability.UNRELIABLE && reliability != Reliability.UNRELIABLE_SEQUENCED) {
+			throw new IllegalArgumentException("Only unreliable packets without a receipt can be coalesced");
+		}
+		EncapsulatedPacket encapsulated = this.createEncapsulated(reliability, orderChannel, packet);
+		if (CustomPacket.HEADER_LENGTH + encapsulated.calculateSize() > this.getMaximumCustomSize()) {
+			throw new IllegalArgumentException("Coalesced packets must fit in a single CustomPacket");
+		}
+
+		// Replace the packet waiting in the queue
+		EncapsulatedPacket pending = coalescing.get(key);
+		if (pending != null) {
+			// Only sequenced packets keep their channel once they are queued
+			if (pending.reliability == reliability
+					&& (!reliability.isSequenced() || pending.orderChannel == encapsulated.orderChannel)) {
+				sendQueue.replace(pending, encapsulated.payload, encapsulated.payloadLength);
+				this.coalescedPackets++;
+				this.updateWritability();
+				return pending;
+			}
+			// Can't be moved to a different reliability or channel
+			pending.coalesced = false;
+			coalescing.remove(key);
+		}
+
+		// Nothing to replace, queue it so newer packets can replace it
+		if (this.queueEncapsulated(encapsulated, priority)) {
+			encapsulated.coalesced = true;
+			encapsulated.coalesceKey = key;
+			coalescing.put(key, encapsulated);
+		}
+		this.scheduleFlush(priority);
+		return encapsulated;
+	}
+
+	/**
+	 * Sends an unreliable packet on the default channel that replaces any
+	 * packet with the same key that is still waiting in the send queue
+	 * 
+	 * @param reliability
+	 * @param priority
+	 * @param key
+	 * @param packet
+	 * @return EncapsulatedPacket
+	 */
+	public final EncapsulatedPacket sendCoalescedPacket(Reliability reliability, Priority priority, long key,
+			Message packet) {
+		return this.sendCoalescedPacket(reliability, DEFAULT_CHANNEL, priority, key, packet);
+	}
+
+	/**
+	 * Sends an unreliable packet on the default channel with the
+	 * <code>MEDIUM</code> priority that replaces any packet with the same key
+	 * that is still waiting in the send queue
+	 * 
+	 * @param reliability
+	 * @param key
+	 * @param packet
+	 * @return EncapsulatedPacket
+	 */
+	public final EncapsulatedPacket sendCoalescedPacket(Reliability reliability, long key, Message packet) {
+		return this.sendCoalescedPacket(reliability, DEFAULT_CHANNEL, MEDIUM, key, packet);
+	}
+
+	/**
+	 * Returns how many queued packets have been replaced by newer packets with
+	 * the same coalescing key before they were sent
+	 * 
+	 * @return long
+	 */
+	public long getCoalescedPacketCount() {
+		return this.coalescedPackets;
+	}
+
+	/**
+	 * Sends a batch of packets with their matching reliabilities and the
+	 * specified priority. Every packet is queued at once and the send queue
+	 * is flushed right after, so the packets are packed into as few
+	 * <code>CustomPackets</code> as possible without waiting for the flush
+	 * delay.
+	 * 
+	 * @param reliabilities
+	 * @param orderChannel
+	 * @param priority
+	 * @param packets
+	 * @return EncapsulatedPacket[]
+	 */
+	public final synchronized EncapsulatedPacket[] sendPackets(Reliability[] reliabilities, int orderChannel,
+			Priority priority, Message[] packets) {
+		if (reliabilities.length != packets.length) {
+			throw new IllegalArgumentException("There must be a reliability for every packet");
+		}
+		EncapsulatedPacket[] encapsulated = new EncapsulatedPacket[packets.length];
+		for (int i = 0; i < packets.length; i++) {
+			encapsulated[i] = this.createEncapsulated(reliabilities[i], orderChannel, packets[i]);
+			this.queueEncapsulated(encapsulated[i], priority);
+		}
+
+		// Flush the whole batch at once
+		if (channel.eventLoop().inEventLoop()) {
+			this.flush();
+		} else {
+			channel.eventLoop().execute(flushTask);
+		}
+		return encapsulated;
+	}
+
+	/**
+	 * Sends a batch of packets with their matching reliabilities and the
+	 * specified priority on the default channel
+	 * 
+	 * @param reliabilities
+	 * @param priority
+	 * @param packets
+	 * @return EncapsulatedPacket[]
+	 */
+	public final EncapsulatedPacket[] sendPackets(Reliability[] reliabilities, Priority priority,
+			Message[] packets) {
+		return this.sendPackets(reliabilities, DEFAULT_CHANNEL, priority, packets);
+	}
+
+	/**
+	 * Sends a batch of packets with their matching reliabilities with the
+	 * <code>MEDIUM</code> priority
+	 * 
+	 * @param reliabilities
+	 * @param packets
+	 * @return EncapsulatedPacket[]
+	 */
+	public final EncapsulatedPacket[] sendPackets(Reliability[] reliabilities, Message[] packets) {
+		return this.sendPackets(reliabilities, DEFAULT_CHANNEL, MEDIUM, packets);
+	}
+
+	/**
+	 * Sends a batch of packets that all use the same reliability with the
+	 * <code>MEDIUM</code> priority
+	 * 
+	 * @param reliability
+	 * @param packets
+	 * @return EncapsulatedPacket[]
+	 */
+	public final EncapsulatedPacket[] sendPackets(Reliability reliability, Message... packets) {
+		Reliability[] reliabilities = new Reliability[packets.length];
+		Arrays.fill(reliabilities, reliability);
+		return this.sendPackets(reliabilities, DEFAULT_CHANNEL, MEDIUM, packets);
+	}
+
+	/**
+	 * Returns how long in milliseconds a packet sent with a delivery
+	 * confirmation has to be acknowledged before its future fails
+	 * 
+	 * @return long
+	 */
+	public long getConfirmationTimeout() {
+		return this.confirmationTimeout;
+	}
+
+	/**
+	 * Sets how long in milliseconds a packet sent with a delivery
+	 * confirmation has to be acknowledged before its future fails
+	 * 
+	 * @param confirmationTimeout
+	 */
+	public void setConfirmationTimeout(long confirmationTimeout) {
+		if (confirmationTimeout <= 0) {
+			throw new IllegalArgumentException("Confirmation timeout must be greater than zero");
+		}
+		this.confirmationTimeout = confirmationTimeout;
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet, reliability,
+	 * order channel and priority and returns a future that is completed once
+	 * every split of it has been acknowledged. The future fails with a
+	 * <code>PacketNotAcknowledgedException</code> if the packet is lost, is
+	 * not acknowledged within the timeout or the session is closed first.
+	 * Futures are completed on the thread that handled the acknowledgement,
+	 * so any long running work should be done asynchronously.
+	 * 
+	 * @param reliability
+	 * @param orderChannel
+	 * @param priority
+	 * @param packet
+	 * @param timeout
+	 * @return CompletableFuture
+	 */
+	public final synchronized CompletableFuture<EncapsulatedPacket> sendPacketConfirmed(Reliability reliability,
+			int orderChannel, Priority priority, Message packet, long timeout) {
+		EncapsulatedPacket encapsulated = this.createEncapsulated(reliability, orderChannel, packet);
+
+		// Create receipt before it is sent so every split gets it
+		CompletableFuture<EncapsulatedPacket> future = new CompletableFuture<EncapsulatedPacket>();
+		encapsulated.receipt = new DeliveryReceipt(encapsulated, future, System.currentTimeMillis() + timeout);
+		confirmations.add(encapsulated.receipt);
+		this.sendEncapsulated(encapsulated, priority);
+		return future;
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet, reliability and
+	 * priority on the default channel and returns a future that is completed
+	 * once it has been acknowledged within the specified timeout
+	 * 
+	 * @param reliability
+	 * @param priority
+	 * @param packet
+	 * @param timeout
+	 * @return CompletableFuture
+	 */
+	public final CompletableFuture<EncapsulatedPacket> sendPacketConfirmed(Reliability reliability,
+			Priority priority, Message packet, long timeout) {
+		return this.sendPacketConfirmed(reliability, DEFAULT_CHANNEL, priority, packet, timeout);
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet, reliability and
+	 * priority and returns a future that is completed once it has been
+	 * acknowledged, using the session's confirmation timeout
+	 * 
+	 * @param reliability
+	 * @param priority
+	 * @param packet
+	 * @return CompletableFuture
+	 */
+	public final CompletableFuture<EncapsulatedPacket> sendPacketConfirmed(Reliability reliability,
+			Priority priority, Message packet) {
+		return this.sendPacketConfirmed(reliability, DEFAULT_CHANNEL, priority, packet, confirmationTimeout);
+	}
+
+	/**
+	 * Sends an EncapsulatedPacket using the specified packet and reliability
+	 * with the <code>MEDIUM</code> priority and returns a future that is
+	 * completed once it has been acknowledged, using the session's
+	 * confirmation timeout
+	 * 
+	 * @param reliability
+	 * @param packet
+	 * @return CompletableFuture
+	 */
+	public final CompletableFuture<EncapsulatedPacket> sendPacketConfirmed(Reliability reliability, Message packet) {
+		return this.sendPacketConfirmed(reliability, DEFAULT_CHANNEL, MEDIUM, packet, confirmationTimeout);
+	}
+
+	/**
+	 * Closes the session, every delivery confirmation that has not been
+	 * completed yet fails
+	 */
+	public final synchronized void close() {
+		while (!confirmations.isEmpty()) {
+			DeliveryReceipt receipt = confirmations.poll();
+			receipt.getFuture().completeExceptionally(
+					new PacketNotAcknowledgedException(this, receipt.getPacket(), "Session closed"));
+		}
+	}
+
+	/**
+	 * Sends raw data to the session
+	 * 
+	 * @param packet
+	 */
+	public final void sendRaw(Message packet) {
+		channel.writeAndFlush(new DatagramPacket(packet.buffer(), address));
+		this.lastSendTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the amount of reliable packets that have not yet been
+	 * acknowledged
+	 * 
+	 * @return int
+	 */
+	public final int getReliableQueueSize() {
+		return sendWindow.getReliableSize();
+	}
+
+	/**
+	 * Returns the amount of packets that have not yet been acknowledged
+	 * 
+	 * @return int
+	 */
+	public final int getRecoveryQueueSize() {
+		return sendWindow.getSize();
+	}
+
+	/**
+	 * Recovers every packet whose retransmission timeout has expired and fails
+	 * every delivery confirmation that was not acknowledged in time. The
+	 * timeout doubles every time it expires without any packets being
+	 * acknowledged in between.
+	 */
+	public final synchronized void update() {
+		long currentTime = System.currentTimeMillis();
+
+		// Fail delivery confirmations that weren't acknowledged in time
+		while (!confirmations.isEmpty() && (confirmations.peek().getFuture().isDone()
+				|| confirmations.peek().getDeadline() <= currentTime)) {
+			DeliveryReceipt receipt = confirmations.poll();
+			receipt.getFuture().completeExceptionally(new PacketNotAcknowledgedException(this, receipt.getPacket(),
+					"Packet was not acknowledged in time"));
+		}
+
+		long expiration = Math.min(this.getRetransmissionTimeout() << retransmissionBackoff,
+				MAXIMUM_RETRANSMISSION_TIMEOUT);
+		boolean expired = false;
+		int endSeqNumber = sendWindow.getEnd();
+		for (int seqNumber = sendWindow.getFirst(); seqNumber != endSeqNumber; seqNumber = SerialUtils.next(seqNumber)) {
+			if (sendWindow.get(seqNumber) == null) {
+				continue; // Already acknowledged
+			}
+
+			// Packets are sent in order, so every packet after this is newer
+			if (currentTime - sendWindow.getSendTime(seqNumber) < expiration) {
+				break;
+			}
+			this.recoverCustom(seqNumber);
+			expired = true;
+		}
+
+		// Back off once per timeout and send the recovered packets
+		if (expired == true) {
+			congestionController.onTimeout(currentTime);
+			this.retransmissionBackoff = Math.min(retransmissionBackoff + 1, MAX_RETRANSMISSION_BACKOFF);
+			this.scheduleFlush();
+		}
+	}
+
+	/**
+	 * Removes a lost <code>CustomPacket</code> from the send window and puts
+	 * its reliable packets back at the front of the send queue, so they are
+	 * packed into new <code>CustomPackets</code> along with any other queued
+	 * packets instead of the same one being sent again. Its unreliable packets
+	 * are given up on.
+	 * 
+	 * @param seqNumber
+	 */
+	private void recoverCustom(int seqNumber) {
+		CustomPacket custom = sendWindow.get(seqNumber);
+		sendWindow.remove(seqNumber);
+		for (EncapsulatedPacket encapsulated : custom.packets) {
+			if (encapsulated.reliability.isReliable()) {
+				sendQueue.resend(encapsulated);
+			} else if (encapsulated.receipt != null && encapsulated.receipt.lose()) {
+				this.notifyLost(encapsulated.receipt);
+			}
+		}
+	}
+
+	/**
+	 * Removes all packets in the ACK packet from the send window, as they have
+	 * already been acknowledged
+	 * 
+	 * @param ack
+	 * @throws UnexpectedPacketException
+	 */
+	public final synchronized void handleAck(Acknowledge ack) throws UnexpectedPacketException {
+		if (ack.getId() == ID_ACK) {
+			long currentTime = System.currentTimeMillis();
+			for (Record record : ack.records) {
+				int seqNumber = this.clampRecordStart(record);
+				int endIndex = this.clampRecordEnd(record);
+				for (; !SerialUtils.isNewer(seqNumber, endIndex); seqNumber = SerialUtils.next(seqNumber)) {
+					if (sendWindow.get(seqNumber) != null) {
+						// Sequence numbers are never reused, so every ACK can be timed
+						this.updateRoundTripTime(currentTime - sendWindow.getSendTime(seqNumber));
+						this.acknowledgeReceipts(sendWindow.get(seqNumber));
+						sendWindow.remove(seqNumber);
+						congestionController.onAcknowledge(currentTime);
+						this.retransmissionBackoff = 0;
+					}
+				}
+			}
+			this.flush();
+		} else {
+			throw new UnexpectedPacketException(this, ID_ACK, ack.getId());
+		}
+	}
+
+	/**
+	 * Recovers all packets with the ID's contained in the NACK packet, their
+	 * reliable packets are sent again in new packets
+	 * 
+	 * @param nack
+	 * @throws UnexpectedPacketException
+	 */
+	public final synchronized void handleNack(Acknowledge nack) throws UnexpectedPacketException {
+		if (nack.getId() == ID_NACK) {
+			long currentTime = System.currentTimeMillis();
+			for (Record record : nack.records) {
+				int seqNumber = this.clampRecordStart(record);
+				int endIndex = this.clampRecordEnd(record);
+				for (; !SerialUtils.isNewer(seqNumber, endIndex); seqNumber = SerialUtils.next(seqNumber)) {
+					if (sendWindow.get(seqNumber) != null) {
+						congestionController.onNotAcknowledge(currentTime);
+						this.recoverCustom(seqNumber);
+					}
+				}
+			}
+			this.flush();
+		} else {
+			throw new UnexpectedPacketException(this, ID_NACK, nack.getId());
+		}
+	}
+
+	/**
+	 * Returns the first sequence number in the record that could still be in
+	 * the send window
+	 * 
+	 * @param record
+	 * @return int
+	 */
+	private int clampRecordStart(Record record) {
+		return (SerialUtils.isNewer(sendWindow.getFirst(), record.index) ? sendWindow.getFirst() : record.index);
+	}
+
+	/**
+	 * Returns the last sequence number in the record that could still be in
+	 * the send window
+	 * 
+	 * @param record
+	 * @return int
+	 */
+	private int clampRecordEnd(Record record) {
+		int last = SerialUtils.add(sendWindow.getEnd(), -1);
+		return (SerialUtils.isNewer(record.endIndex, last) ? last : record.endIndex);
+	}
+
+	/**
+	 * Updates the receipts of the packets in an acknowledged
+	 * <code>CustomPacket</code>, every packet that has had all of its splits
+	 * acknowledged has its future completed and <code>onAcknowledge()</code>
+	 * called if it was sent with an ACK receipt reliability. Ordered packets
+	 * also move the window of their order channel forward.
+	 * 
+	 * @param custom
+	 */
+	private void acknowledgeReceipts(CustomPacket custom) {
+		for (EncapsulatedPacket encapsulated : custom.packets) {
+			if (encapsulated.reliability.isOrdered()) {
+				orderWindows[encapsulated.orderChannel].acknowledge(encapsulated);
+			}
+			DeliveryReceipt receipt = encapsulated.receipt;
+			if (receipt != null && receipt.acknowledge()) {
+				if (receipt.getFuture() != null) {
+					receipt.getFuture().complete(receipt.getPacket());
+				}
+				if (receipt.getPacket().reliability.hasAckReceipt()) {
+					this.onAcknowledge(receipt.getPacket());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fails the future of a lost packet's receipt and calls
+	 * <code>onNotAcknowledge()</code> if it was sent with an ACK receipt
+	 * reliability
+	 * 
+	 * @param receipt
+	 */
+	private void notifyLost(DeliveryReceipt receipt) {
+		if (receipt.getFuture() != null) {
+			receipt.getFuture().completeExceptionally(
+					new PacketNotAcknowledgedException(this, receipt.getPacket(), "Packet was lost"));
+		}
+		if (receipt.getPacket().reliability.hasAckReceipt()) {
+			this.onNotAcknowledge(receipt.getPacket());
+		}
+	}
+
+	/**
+	 * Returns how long a sequence number must be missing in milliseconds
+	 * before a NACK is sent for it, this gives packets that arrived out of
+	 * order a chance to show up before they are resent
+	 * 
+	 * @return long
+	 */
+	public long getNackDelay() {
+		return this.nackDelay;
+	}
+
+	/**
+	 * Sets how long a sequence number must be missing in milliseconds before
+	 * a NACK is sent for it
+	 * 
+	 * @param nackDelay
+	 */
+	public void setNackDelay(long nackDelay) {
+		this.nackDelay = (nackDelay > 0 ? nackDelay : 0);
+	}
+
+	/**
+	 * Sends every queued acknowledgement. This is called by the handlers once
+	 * they have finished reading all the packets that were available.
+	 */
+	public final void sendAcknowledge() {
+		if (!acknowledgeQueue.isEmpty()) {
+			this.sendRecords(ID_ACK, acknowledgeQueue);
+			acknowledgeQueue.clear();
+		}
+	}
+
+	/**
+	 * Sends a NACK for every sequence number that has been missing for longer
+	 * than the NACK delay, and checks again later if there are still missing
+	 * sequence numbers left
+	 */
+	private void sendNotAcknowledge() {
+		this.nackScheduled = false;
+		long currentTime = System.currentTimeMillis();
+		ArrayList<Record> missing = new ArrayList<Record>();
+		nackQueue.poll(currentTime, nackDelay, missing);
+		if (!missing.isEmpty()) {
+			this.sendRecords(ID_NACK, missing);
+		}
+		this.scheduleNotAcknowledge(currentTime);
+	}
+
+	/**
+	 * Schedules the NACK task to run once the oldest missing sequence number
+	 * has been missing for longer than the NACK delay
+	 * 
+	 * @param currentTime
+	 */
+	private void scheduleNotAcknowledge(long currentTime) {
+		if (nackScheduled == false && !nackQueue.isEmpty()) {
+			this.nackScheduled = true;
+			long wait = nackQueue.getOldestTime() + nackDelay - currentTime;
+			channel.eventLoop().schedule(nackTask, (wait > 0 ? wait : 0), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Sends the records as ACK or NACK packets, the records are split up into
+	 * as few packets as possible without any of them going over the MTU size
+	 * 
+	 * @param id
+	 * @param records
+	 */
+	private void sendRecords(short id, ArrayList<Record> records) {
+		Acknowledge acknowledge = new Acknowledge(id);
+		int size = Acknowledge.HEADER_LENGTH;
+		for (Record record : this.splitRecords(records)) {
+			// Send the current packet if the next record won't fit
+			if (!acknowledge.records.isEmpty() && size + record.calculateSize() > this.maximumTransferUnit) {
+				acknowledge.encode();
+				channel.write(new DatagramPacket(acknowledge.buffer(), address));
+				acknowledge = new Acknowledge(id);
+				size = Acknowledge.HEADER_LENGTH;
+			}
+			acknowledge.records.add(record);
+			size += record.calculateSize();
+		}
+		acknowledge.encode();
+		channel.writeAndFlush(new DatagramPacket(acknowledge.buffer(), address));
+		this.lastSendTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the records with every range that is too long to be decoded
+	 * split up into ranges of at most <code>MAX_RECORD_RANGE</code> sequence
+	 * numbers
+	 * 
+	 * @param records
+	 * @return ArrayList
+	 */
+	private ArrayList<Record> splitRecords(ArrayList<Record> records) {
+		ArrayList<Record> split = new ArrayList<Record>(records.size());
+		for (Record record : records) {
+			int index = record.index;
+			while (SerialUtils.difference(record.endIndex, index) >= Acknowledge.MAX_RECORD_RANGE) {
+				int endIndex = SerialUtils.add(index, Acknowledge.MAX_RECORD_RANGE - 1);
+				split.add(new Record(index, endIndex));
+				index = SerialUtils.next(endIndex);
+			}
+			split.add(index == record.index ? record : new Record(index, record.endIndex));
+		}
+		return split;
+	}
+
+	/**
+	 * Queues the sequence number to be acknowledged, extending the last
+	 * record if the sequence number comes right after it
+	 * 
+	 * @param seqNumber
+	 */
+	private void queueAcknowledge(int seqNumber) {
+		if (!acknowledgeQueue.isEmpty()) {
+			Record last = acknowledgeQueue.get(acknowledgeQueue.size() - 1);
+			if (seqNumber == SerialUtils.next(last.endIndex)) {
+				last.endIndex = seqNumber;
+				return;
+			}
+		}
+		acknowledgeQueue.add(new Record(seqNumber));
+	}
+
+	public final void handleCustom0(CustomPacket custom) throws RakNetException {
+		// Acknowledge packet even if it has been received before
+		this.queueAcknowledge(custom.seqNumber);
+
+		// Make sure this packet wasn't already received
+		if (receiveWindow.receive(custom.seqNumber)) {
+			// Keep the packet in case another packet in its group is lost
+			if (parityDecoder != null && !this.containsReliable(custom)) {
+				parityDecoder.store(custom);
+			}
+
+			// Keep track of any packets that might have been lost
+			long currentTime = System.currentTimeMillis();
+			nackQueue.receive(custom.seqNumber, currentTime);
+			this.scheduleNotAcknowledge(currentTime);
+
+			// Handle encapsulated packets
+			for (EncapsulatedPacket encapsulated : custom.packets) {
+				this.handleEncapsulated0(encapsulated);
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the only lost <code>CustomPacket</code> in the parity packet's
+	 * group and handles it as if it had arrived. The first parity packet
+	 * received only starts keeping track of received packets, as the packets
+	 * in its group were not kept.
+	 * 
+	 * @param parity
+	 * @throws RakNetException
+	 */
+	public final void handleParity(ParityPacket parity) throws RakNetException {
+		if (parityDecoder == null) {
+			this.parityDecoder = new ParityDecoder(PARITY_HISTORY_SIZE);
+			return;
+		}
+
+		int missing = parityDecoder.getMissing(parity);
+		if (missing == 1) {
+			byte[] recovered = parityDecoder.recover(parity);
+			if (recovered != null) {
+				CustomPacket custom = new CustomPacket(new Message(recovered));
+				custom.decode();
+				this.recoveredPackets++;
+				this.handleCustom0(custom);
+			} else {
+				this.unrecoverablePackets++;
+			}
+		} else if (missing > 1) {
+			this.unrecoverablePackets += missing;
+		}
+	}
+
+	/**
+	 * Returns whether or not the <code>CustomPacket</code> contains any
+	 * reliable packets
+	 * 
+	 * @param custom
+	 * @return boolean
+	 */
+	private boolean containsReliable(CustomPacket custom) {
+		for (EncapsulatedPacket encapsulated : custom.packets) {
+			if (encapsulated.reliability.isReliable()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private final void handleEncapsulated0(EncapsulatedPacket encapsulated) throws RakNetException {
+		// Reliable packets are only handled once, even if resent in a different datagram
+		if (encapsulated.reliability.isReliable() && !messageWindow.receive(encapsulated.messageIndex)) {
+			return;
+		}
+
+		// Make sure the packet's order channel exists
+		if ((encapsulated.reliability.isOrdered() || encapsulated.reliability.isSequenced())
+				&& encapsulated.orderChannel >= MAX_CHANNELS) {
+			throw new InvalidOrderChannelException(this, encapsulated);
+		}
+
+		// Split packets are put back together before they are ordered
+		if (encapsulated.split == true) {
+			encapsulated = this.handleSplit(encapsulated);
+			if (encapsulated == null) {
+				return; // Split packet is not complete yet
+			}
+		}
+
+		// Handle packet order based on it's reliability
+		Reliability reliability = encapsulated.reliability;
+		if (reliability.isOrdered()) {
+			OrderingQueue ordering = orderingQueues[encapsulated.orderChannel];
+			if (ordering.isOverflowing(encapsulated.orderIndex)) {
+				throw new PacketQueueOverloadException(this, "ordering queue", MAX_ORDERED_PACKETS_PER_CHANNEL);
+			}
+
+			// Handle packet and every held packet that is now in order
+			if (ordering.offer(encapsulated)) {
+				this.handleOrdered(encapsulated);
+				EncapsulatedPacket ordered = null;
+				while ((ordered = ordering.poll()) != null) {
+					this.handleOrdered(ordered);
+				}
+			}
+			return;
+		} else if (reliability.isSequenced()) {
+			if (SerialUtils.isNewer(receiveSequenceIndex[encapsulated.orderChannel], encapsulated.orderIndex)) {
+				return; // Packet is old, no error needed
+			}
+			receiveSequenceIndex[encapsulated.orderChannel] = SerialUtils.next(encapsulated.orderIndex);
+		}
+
+		// Handle packet
+		this.handleEncapsulated(encapsulated);
+	}
+
+	/**
+	 * Handles an ordered packet that is now in order, empty packets only take
+	 * the place of packets that expired before they could be sent so they are
+	 * skipped
+	 * 
+	 * @param encapsulated
+	 */
+	private void handleOrdered(EncapsulatedPacket encapsulated) {
+		if (encapsulated.getPayloadLength() > 0) {
+			this.handleEncapsulated(encapsulated);
+		}
+	}
+
+	/**
+	 * Adds a split packet to the split queue and returns the packet it belongs
+	 * to once every split of it has arrived, otherwise <code>null</code> is
+	 * returned
+	 * 
+	 * @param encapsulated
+	 * @return EncapsulatedPacket
+	 * @throws RakNetException
+	 */
+	private final EncapsulatedPacket handleSplit(EncapsulatedPacket encapsulated) throws RakNetException {
+		long currentTime = System.currentTimeMillis();
+		SplitPacket split = splitQueue.get(encapsulated.splitId);
+		boolean created = false;
+		if (split == null) {
+			if (encapsulated.splitCount > MAX_SPLIT_COUNT) {
+				throw new SplitPacketQueueException(this, encapsulated);
+			}
+
+			// Create split packet
+			split = new SplitPacket(encapsulated);
+			created = true;
+		}
+
+		// Make room for the split if it goes over the budget
+		int length = encapsulated.getPayloadLength();
+		int cost = length + (created ? split.getOverhead() : 0);
+		if (splitQueueSize + cost > splitBudget) {
+			this.evictSplits(splitQueueSize + cost - splitBudget, split);
+		}
+		if (split.update(encapsulated, currentTime)) {
+			if (created == true) {
+				splitQueue.put(encapsulated.splitId, split);
+			}
+			this.splitQueueSize += cost;
+		} else if (created == true) {
+			return null; // Invalid first split, don't keep the split packet
+		}
+
+		// Put the packet back together once every split has arrived
+		if (split.isComplete()) {
+			splitQueue.remove(encapsulated.splitId);
+			this.splitQueueSize -= split.getCost();
+			return split.assemble();
+		}
+		this.scheduleSplitExpiry(currentTime);
+		return null;
+	}
+
+	/**
+	 * Evicts the least recently updated unreliable split packets until enough
+	 * bytes have been freed, reliable split packets are never evicted as
+	 * their splits have already been acknowledged
+	 * 
+	 * @param needed
+	 * @param current
+	 *            the split packet being updated, which won't be evicted
+	 * @throws PacketQueueOverloadException
+	 *             if not enough unreliable split packets could be evicted
+	 */
+	private void evictSplits(int needed, SplitPacket current) throws PacketQueueOverloadException {
+		int freed = 0;
+		Iterator<SplitPacket> splits = splitQueue.values().iterator();
+		while (splits.hasNext() && freed < needed) {
+			SplitPacket split = splits.next();
+			if (split != current && !split.getReliability().isReliable()) {
+				splits.remove();
+				freed += split.getCost();
+				this.splitQueueSize -= split.getCost();
+				this.evictedSplits++;
+			}
+		}
+		if (freed < needed) {
+			throw new PacketQueueOverloadException(this, "split queue", splitBudget);
+		}
+	}
+
+	/**
+	 * Removes every unreliable split packet that has not been updated for
+	 * longer than the split timeout, and checks again later if there are
+	 * still unreliable split packets left. Reliable split packets never
+	 * expire, as their splits have already been acknowledged and will not be
+	 * sent again.
+	 */
+	private void expireSplits() {
+		this.splitExpiryScheduled = false;
+		long currentTime = System.currentTimeMillis();
+		Iterator<SplitPacket> splits = splitQueue.values().iterator();
+		while (splits.hasNext()) {
+			SplitPacket split = splits.next();
+			if (split.getReliability().isReliable()) {
+				continue;
+			} else if (currentTime - split.getLastUpdateTime() < SPLIT_TIMEOUT) {
+				break; // The rest were updated more recently
+			}
+			splits.remove();
+			this.splitQueueSize -= split.getCost();
+			this.expiredSplits++;
+		}
+		this.scheduleSplitExpiry(currentTime);
+	}
+
+	/**
+	 * Schedules the split expiry task to run once the least recently updated
+	 * unreliable split packet times out
+	 * 
+	 * @param currentTime
+	 */
+	private void scheduleSplitExpiry(long currentTime) {
+		if (splitExpiryScheduled == false) {
+			for (SplitPacket split : splitQueue.values()) {
+				if (!split.getReliability().isReliable()) {
+					this.splitExpiryScheduled = true;
+					long wait = split.getLastUpdateTime() + SPLIT_TIMEOUT - currentTime;
+					channel.eventLoop().schedule(splitExpiryTask, (wait > 0 ? wait : 0), TimeUnit.MILLISECONDS);
+					return;
+				}
+			}
+		}
+	}
+
+	public abstract void handleEncapsulated(EncapsulatedPacket encapsulated);
+
+	/**
+	 * Called when a packet sent with an ACK receipt reliability has been
+	 * acknowledged
+	 * 
+	 * @param encapsulated
+	 */
+	public abstract void onAcknowledge(EncapsulatedPacket encapsulated);
+
+	/**
+	 * Called when an unreliable packet sent with an ACK receipt reliability
+	 * was lost, or when a packet of any reliability sent with an ACK receipt
+	 * reliability expired before it could be sent or resent
+	 * 
+	 * @param encapsulated
+	 */
+	public abstract void onNotAcknowledge(EncapsulatedPacket encapsulated);
+
+	/**
+	 * Called when the session becomes writable or stops being writable
+	 * 
+	 * @param writable
+	 */
+	public abstract void onWritabilityChanged(boolean writable);
 
 }
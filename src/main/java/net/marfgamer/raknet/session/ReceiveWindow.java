@@ -0,0 +1,122 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import static net.marfgamer.raknet.utils.SerialUtils.*;
+
+/**
+ * Used by <code>RakNetSession</code> to keep track of which sequence numbers
+ * and message indexes have already been received. Only the most recent
+ * numbers are tracked using a fixed size bitset, anything older than that is
+ * treated as if it has already been received.
+ *
+ * @author Trent Summerlin
+ */
+public class ReceiveWindow {
+
+	private final int size;
+	private final int mask;
+	private final long[] received;
+	private int base;
+
+	public ReceiveWindow(int size) {
+		if (size < 64 || (size & (size - 1)) != 0) {
+			throw new IllegalArgumentException("Size must be a power of two and at least 64");
+		}
+		this.size = size;
+		this.mask = size - 1;
+		this.received = new long[size / 64];
+	}
+
+	/**
+	 * Returns how many sequence numbers the window can keep track of
+	 * 
+	 * @return int
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the oldest sequence number the window is still keeping track
+	 * of, everything below it is treated as a duplicate
+	 * 
+	 * @return int
+	 */
+	public int getBase() {
+		return this.base;
+	}
+
+	/**
+	 * Marks the sequence number as received, returns <code>false</code> if it
+	 * was already received or is too old to be tracked by the window
+	 * 
+	 * @param number
+	 * @return boolean
+	 */
+	public boolean receive(int number) {
+		int difference = difference(number, base);
+		if (difference < 0) {
+			return false;
+		} else if (difference >= size) {
+			this.slide(add(number, 1 - size));
+		}
+
+		int slot = number & mask;
+		long bit = 1L << (slot & 63);
+		if ((received[slot >>> 6] & bit) != 0) {
+			return false;
+		}
+		received[slot >>> 6] |= bit;
+		return true;
+	}
+
+	/**
+	 * Moves the window forward so it starts at the specified sequence number,
+	 * forgetting every sequence number before it
+	 * 
+	 * @param base
+	 */
+	private void slide(int base) {
+		if (difference(base, this.base) >= size) {
+			for (int i = 0; i < received.length; i++) {
+				received[i] = 0L;
+			}
+		} else {
+			for (int i = this.base; i != base; i = next(i)) {
+				int slot = i & mask;
+				received[slot >>> 6] &= ~(1L << (slot & 63));
+			}
+		}
+		this.base = base;
+	}
+
+}
@@ -0,0 +1,375 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import java.util.ArrayDeque;
+
+import net.marfgamer.raknet.RakNet;
+import net.marfgamer.raknet.protocol.Priority;
+import net.marfgamer.raknet.protocol.identifier.MessageIdentifiers;
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+
+/**
+ * Used by <code>RakNetSession</code> to hold packets until there is room to
+ * send them. Packets that were lost and need to be resent always go first,
+ * followed by <code>IMMEDIATE</code> packets. The other packets take turns by
+ * order channel using deficit round-robin, every channel that has packets
+ * waiting gets a share of the bytes sent based on its weight and the share of
+ * channels with nothing to send goes to the others. Within a channel the
+ * priorities take turns based on their weight using stride scheduling, so
+ * higher priorities are drained first without ever starving the lower ones.
+ * Ordered and sequenced packets are the exception, they are always sent in
+ * the order they were queued on their channel. While a channel has ordered
+ * packets waiting, any new ordered packet is queued behind them with their
+ * priority instead of its own.
+ *
+ * @author Trent Summerlin
+ */
+public class SendQueue implements RakNet, MessageIdentifiers {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final int STRIDE = 16;
+
+	private final ArrayDeque<EncapsulatedPacket> resendQueue;
+	private final ArrayDeque<EncapsulatedPacket> immediateQueue;
+	private final ArrayDeque<EncapsulatedPacket>[][] queues;
+	private final long[][] passes;
+	private final long[] pass;
+	private final int[] channelSizes;
+	private final int[] orderedQueues;
+	private final int[] orderedSizes;
+	private final int[] prioritySizes;
+	private final int[] weights;
+	private final int[] deficits;
+	private final ArrayDeque<Integer> activeChannels;
+	private boolean quantumAdded;
+	private int size;
+	private int bytes;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public SendQueue() {
+		this.resendQueue = new ArrayDeque<EncapsulatedPacket>();
+		this.immediateQueue = new ArrayDeque<EncapsulatedPacket>();
+		this.queues = new ArrayDeque[MAX_CHANNELS][];
+		this.passes = new long[MAX_CHANNELS][];
+		this.pass = new long[MAX_CHANNELS];
+		this.channelSizes = new int[MAX_CHANNELS];
+		this.orderedQueues = new int[MAX_CHANNELS];
+		this.orderedSizes = new int[MAX_CHANNELS];
+		this.prioritySizes = new int[PRIORITIES.length];
+		this.weights = new int[MAX_CHANNELS];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = DEFAULT_CHANNEL_WEIGHT;
+		}
+		this.deficits = new int[MAX_CHANNELS];
+		this.activeChannels = new ArrayDeque<Integer>();
+	}
+
+	/**
+	 * Returns how many packets are in the queue
+	 * 
+	 * @return int
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns how many bytes the packets in the queue will take up once they
+	 * have been encoded
+	 * 
+	 * @return int
+	 */
+	public int bytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * Returns how many packets with the specified priority are in the queue
+	 * 
+	 * @param priority
+	 * @return int
+	 */
+	public int size(Priority priority) {
+		return prioritySizes[priority.ordinal()];
+	}
+
+	/**
+	 * Returns how many packets on the specified order channel are in the
+	 * queue, not counting lost and <code>IMMEDIATE</code> packets
+	 * 
+	 * @param channel
+	 * @return int
+	 */
+	public int size(int channel) {
+		return channelSizes[channel];
+	}
+
+	/**
+	 * Returns whether or not the queue is empty
+	 * 
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the weight of the specified order channel
+	 * 
+	 * @param channel
+	 * @return int
+	 */
+	public int getWeight(int channel) {
+		return weights[channel];
+	}
+
+	/**
+	 * Sets the weight of the specified order channel, every turn a channel
+	 * gets to send <code>CHANNEL_QUANTUM</code> bytes for each point of weight
+	 * 
+	 * @param channel
+	 * @param weight
+	 */
+	public void setWeight(int channel, int weight) {
+		weights[channel] = weight;
+	}
+
+	/**
+	 * Returns the order channel a packet is scheduled on, packets with a
+	 * channel that doesn't exist are scheduled on the default channel
+	 * 
+	 * @param encapsulated
+	 * @return int
+	 */
+	private int getChannel(EncapsulatedPacket encapsulated) {
+		if (encapsulated.orderChannel < 0 || encapsulated.orderChannel >= MAX_CHANNELS) {
+			return DEFAULT_CHANNEL;
+		}
+		return encapsulated.orderChannel;
+	}
+
+	/**
+	 * Returns whether or not a packet has to be sent in the order it was
+	 * queued on its channel
+	 * 
+	 * @param encapsulated
+	 * @return boolean
+	 */
+	private boolean isOrdered(EncapsulatedPacket encapsulated) {
+		return encapsulated.reliability.isOrdered() || encapsulated.reliability.isSequenced();
+	}
+
+	/**
+	 * Adds a packet to the end of the queue for its order channel and
+	 * priority, ordered packets are added to the end of the queue that
+	 * already has ordered packets from the same channel waiting
+	 * 
+	 * @param encapsulated
+	 * @param priority
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void add(EncapsulatedPacket encapsulated, Priority priority) {
+		int channel = this.getChannel(encapsulated);
+		boolean ordered = this.isOrdered(encapsulated);
+		int index = priority.ordinal();
+		if (ordered == true && orderedSizes[channel] > 0) {
+			// Don't let the packet overtake ordered packets queued before it
+			index = orderedQueues[channel];
+		}
+
+		if (PRIORITIES[index] == Priority.IMMEDIATE) {
+			immediateQueue.add(encapsulated);
+		} else {
+			if (queues[channel] == null) {
+				// Most sessions only use a few channels
+				queues[channel] = new ArrayDeque[PRIORITIES.length];
+				for (int i = 0; i < PRIORITIES.length; i++) {
+					queues[channel][i] = new ArrayDeque<EncapsulatedPacket>();
+				}
+				passes[channel] = new long[PRIORITIES.length];
+			}
+
+			if (queues[channel][index].isEmpty()) {
+				// Don't let a queue that was empty catch up on the turns it missed
+				passes[channel][index] = Math.max(passes[channel][index], pass[channel]);
+			}
+			if (channelSizes[channel]++ == 0) {
+				activeChannels.add(channel);
+			}
+			if (ordered == true) {
+				orderedQueues[channel] = index;
+				orderedSizes[channel]++;
+			}
+			queues[channel][index].add(encapsulated);
+		}
+		prioritySizes[index]++;
+		this.size++;
+		this.bytes += encapsulated.calculateSize();
+	}
+
+	/**
+	 * Replaces the payload of a packet that is still waiting in the queue, the
+	 * packet keeps its place in the queue
+	 * 
+	 * @param encapsulated
+	 * @param payload
+	 * @param payloadLength
+	 */
+	public void replace(EncapsulatedPacket encapsulated, byte[] payload, int payloadLength) {
+		this.bytes -= encapsulated.calculateSize();
+		encapsulated.payload = payload;
+		encapsulated.payloadOffset = 0;
+		encapsulated.payloadLength = payloadLength;
+		this.bytes += encapsulated.calculateSize();
+	}
+
+	/**
+	 * Adds a lost packet to the end of the resend queue, it will be sent
+	 * again before any other packet
+	 * 
+	 * @param encapsulated
+	 */
+	public void resend(EncapsulatedPacket encapsulated) {
+		resendQueue.add(encapsulated);
+		this.size++;
+		this.bytes += encapsulated.calculateSize();
+	}
+
+	/**
+	 * Returns how many lost packets are waiting to be sent again
+	 * 
+	 * @return int
+	 */
+	public int resendSize() {
+		return resendQueue.size();
+	}
+
+	/**
+	 * Returns the order channel whose turn it is, or <code>-1</code> if every
+	 * channel is empty. A channel keeps its turn until its next packet no
+	 * longer fits in its deficit, the deficit is carried over to its next turn
+	 * for as long as it has packets waiting.
+	 * 
+	 * @return int
+	 */
+	private int nextChannel() {
+		if (activeChannels.isEmpty()) {
+			return -1;
+		}
+		while (true) {
+			int channel = activeChannels.peek();
+			if (quantumAdded == false) {
+				deficits[channel] += CHANNEL_QUANTUM * weights[channel];
+				this.quantumAdded = true;
+			}
+			if (queues[channel][this.nextPriority(channel)].peek().calculateSize() <= deficits[channel]) {
+				return channel;
+			}
+			activeChannels.add(activeChannels.poll());
+			this.quantumAdded = false;
+		}
+	}
+
+	/**
+	 * Returns the index of the priority queue of the specified order channel
+	 * whose turn it is
+	 * 
+	 * @param channel
+	 * @return int
+	 */
+	private int nextPriority(int channel) {
+		int next = -1;
+		for (int i = 0; i < PRIORITIES.length; i++) {
+			if (!queues[channel][i].isEmpty() && (next < 0 || passes[channel][i] < passes[channel][next])) {
+				next = i;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the packet that will be sent next without removing it, or
+	 * <code>null</code> if the queue is empty
+	 * 
+	 * @return EncapsulatedPacket
+	 */
+	public EncapsulatedPacket peek() {
+		if (!resendQueue.isEmpty()) {
+			return resendQueue.peek();
+		} else if (!immediateQueue.isEmpty()) {
+			return immediateQueue.peek();
+		}
+		int channel = this.nextChannel();
+		return (channel >= 0 ? queues[channel][this.nextPriority(channel)].peek() : null);
+	}
+
+	/**
+	 * Removes and returns the packet that will be sent next, or
+	 * <code>null</code> if the queue is empty
+	 * 
+	 * @return EncapsulatedPacket
+	 */
+	public EncapsulatedPacket poll() {
+		EncapsulatedPacket encapsulated = null;
+		if (!resendQueue.isEmpty()) {
+			encapsulated = resendQueue.poll();
+		} else if (!immediateQueue.isEmpty()) {
+			encapsulated = immediateQueue.poll();
+			prioritySizes[Priority.IMMEDIATE.ordinal()]--;
+		} else {
+			int channel = this.nextChannel();
+			if (channel < 0) {
+				return null;
+			}
+			int index = this.nextPriority(channel);
+			this.pass[channel] = passes[channel][index];
+			passes[channel][index] += STRIDE / PRIORITIES[index].getWeight();
+			encapsulated = queues[channel][index].poll();
+			prioritySizes[index]--;
+			if (this.isOrdered(encapsulated)) {
+				orderedSizes[channel]--;
+			}
+
+			// A channel with nothing left to send gives up its turn and deficit
+			deficits[channel] -= encapsulated.calculateSize();
+			if (--channelSizes[channel] == 0) {
+				activeChannels.poll();
+				deficits[channel] = 0;
+				this.quantumAdded = false;
+			}
+		}
+		this.size--;
+		this.bytes -= encapsulated.calculateSize();
+		return encapsulated;
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import static net.marfgamer.raknet.utils.SerialUtils.*;
+
+import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+
+/**
+ * Used by <code>RakNetSession</code> to keep track of every
+ * <code>CustomPacket</code> that has been sent but has not yet been
+ * acknowledged. Packets are stored in a ring indexed by their sequence number
+ * along with the time they were sent, the ring doubles in size if it ever
+ * runs out of room. Packets are never resent as they are, the reliable
+ * packets inside of them are sent again in new packets instead.
+ *
+ * @author Trent Summerlin
+ */
+public class SendWindow {
+
+	private CustomPacket[] packets;
+	private boolean[] reliable;
+	private long[] sendTimes;
+	private int mask;
+	private int first;
+	private int end;
+	private int size;
+	private int reliableSize;
+
+	public SendWindow(int capacity) {
+		if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		this.packets = new CustomPacket[capacity];
+		this.reliable = new boolean[capacity];
+		this.sendTimes = new long[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the sequence number of the oldest packet that has not been
+	 * acknowledged
+	 * 
+	 * @return int
+	 */
+	public int getFirst() {
+		return this.first;
+	}
+
+	/**
+	 * Returns the sequence number after the newest packet in the window
+	 * 
+	 * @return int
+	 */
+	public int getEnd() {
+		return this.end;
+	}
+
+	/**
+	 * Returns the amount of packets in the window
+	 * 
+	 * @return int
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the amount of reliable packets in the window
+	 * 
+	 * @return int
+	 */
+	public int getReliableSize() {
+		return this.reliableSize;
+	}
+
+	/**
+	 * Returns whether or not the sequence number is inside of the window
+	 * 
+	 * @param seqNumber
+	 * @return boolean
+	 */
+	public boolean contains(int seqNumber) {
+		int difference = difference(seqNumber, first);
+		return difference >= 0 && difference < difference(end, first);
+	}
+
+	/**
+	 * Adds a packet that has just been sent to the window, its sequence
+	 * number must come right after the last packet added
+	 * 
+	 * @param custom
+	 * @param reliable
+	 * @param sendTime
+	 */
+	public void add(CustomPacket custom, boolean reliable, long sendTime) {
+		if (size == 0) {
+			this.first = custom.seqNumber;
+			this.end = custom.seqNumber;
+		}
+		if (difference(end, first) >= packets.length) {
+			this.grow();
+		}
+
+		int slot = custom.seqNumber & mask;
+		packets[slot] = custom;
+		this.reliable[slot] = reliable;
+		sendTimes[slot] = sendTime;
+		this.end = next(custom.seqNumber);
+		this.size++;
+		if (reliable == true) {
+			this.reliableSize++;
+		}
+	}
+
+	/**
+	 * Returns the packet with the specified sequence number, or
+	 * <code>null</code> if it is not in the window
+	 * 
+	 * @param seqNumber
+	 * @return CustomPacket
+	 */
+	public CustomPacket get(int seqNumber) {
+		return (this.contains(seqNumber) ? packets[seqNumber & mask] : null);
+	}
+
+	/**
+	 * Returns whether or not the packet with the specified sequence number
+	 * contains reliable packets
+	 * 
+	 * @param seqNumber
+	 * @return boolean
+	 */
+	public boolean isReliable(int seqNumber) {
+		return reliable[seqNumber & mask];
+	}
+
+	/**
+	 * Returns the time the packet with the specified sequence number was sent
+	 * 
+	 * @param seqNumber
+	 * @return long
+	 */
+	public long getSendTime(int seqNumber) {
+		return sendTimes[seqNumber & mask];
+	}
+
+	/**
+	 * Removes the packet with the specified sequence number from the window
+	 * and returns it, or returns <code>null</code> if it was not in the window
+	 * 
+	 * @param seqNumber
+	 * @return CustomPacket
+	 */
+	public CustomPacket remove(int seqNumber) {
+		CustomPacket custom = this.get(seqNumber);
+		if (custom != null) {
+			int slot = seqNumber & mask;
+			packets[slot] = null;
+			this.size--;
+			if (reliable[slot] == true) {
+				this.reliableSize--;
+			}
+
+			// Move the start of the window past acknowledged packets
+			while (first != end && packets[first & mask] == null) {
+				this.first = next(first);
+			}
+		}
+		return custom;
+	}
+
+	/**
+	 * Doubles the size of the window, keeping every packet in it
+	 */
+	private void grow() {
+		int capacity = packets.length * 2;
+		CustomPacket[] packets = new CustomPacket[capacity];
+		boolean[] reliable = new boolean[capacity];
+		long[] sendTimes = new long[capacity];
+		for (int seqNumber = first; seqNumber != end; seqNumber = next(seqNumber)) {
+			int oldSlot = seqNumber & mask;
+			int newSlot = seqNumber & (capacity - 1);
+			packets[newSlot] = this.packets[oldSlot];
+			reliable[newSlot] = this.reliable[oldSlot];
+			sendTimes[newSlot] = this.sendTimes[oldSlot];
+		}
+		this.packets = packets;
+		this.reliable = reliable;
+		this.sendTimes = sendTimes;
+		this.mask = capacity - 1;
+	}
+
+}
@@ -115,4 +115,19 @@ public class ServerSession extends RakNetSession {
 		}
 	}
 
+	@Override
+	public void onAcknowledge(EncapsulatedPacket encapsulated) {
+		client.executeHook(Hook.PACKET_ACKNOWLEDGED, this, encapsulated);
+	}
+
+	@Override
+	public void onNotAcknowledge(EncapsulatedPacket encapsulated) {
+		client.executeHook(Hook.PACKET_NOT_ACKNOWLEDGED, this, encapsulated);
+	}
+
+	@Override
+	public void onWritabilityChanged(boolean writable) {
+		client.executeHook(Hook.WRITABILITY_CHANGED, this, writable);
+	}
+
 }
@@ -0,0 +1,200 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.session;
+
+import net.marfgamer.raknet.RakNet;
+import net.marfgamer.raknet.protocol.Reliability;
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+
+/**
+ * Used by <code>RakNetSession</code> to put split packets back together. Each
+ * split is stored in a slot indexed by its split index, and once every split
+ * has arrived their payloads are copied into the final payload in one go.
+ *
+ * @author Trent Summerlin
+ */
+public class SplitPacket {
+
+	private final int splitId;
+	private final Reliability reliability;
+	private final EncapsulatedPacket[] splits;
+	private int received;
+	private int size;
+	private long lastUpdateTime;
+
+	public SplitPacket(EncapsulatedPacket encapsulated) {
+		if (encapsulated.splitCount <= 0) {
+			throw new IllegalArgumentException("Split count must be greater than zero");
+		}
+		this.splitId = encapsulated.splitId;
+		this.reliability = encapsulated.reliability;
+		this.splits = new EncapsulatedPacket[encapsulated.splitCount];
+	}
+
+	/**
+	 * Returns the ID of the split packet
+	 * 
+	 * @return int
+	 */
+	public int getSplitId() {
+		return this.splitId;
+	}
+
+	/**
+	 * Returns the reliability of the split packet
+	 * 
+	 * @return Reliability
+	 */
+	public Reliability getReliability() {
+		return this.reliability;
+	}
+
+	/**
+	 * Returns how many splits the packet was split into
+	 * 
+	 * @return int
+	 */
+	public int getSplitCount() {
+		return splits.length;
+	}
+
+	/**
+	 * Returns how many splits have arrived so far
+	 * 
+	 * @return int
+	 */
+	public int getReceived() {
+		return this.received;
+	}
+
+	/**
+	 * Returns the combined payload size of the splits that have arrived so
+	 * far
+	 * 
+	 * @return int
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the fixed amount of memory charged for the split packet no
+	 * matter how many of its splits have arrived, so splits with little or
+	 * no payload still count towards the split budget
+	 * 
+	 * @return int
+	 */
+	public int getOverhead() {
+		return splits.length * RakNet.SPLIT_SLOT_OVERHEAD;
+	}
+
+	/**
+	 * Returns how much of the split budget the split packet takes up, this
+	 * is its size plus its overhead
+	 * 
+	 * @return int
+	 */
+	public int getCost() {
+		return this.size + this.getOverhead();
+	}
+
+	/**
+	 * Returns the last time a split arrived
+	 * 
+	 * @return long
+	 */
+	public long getLastUpdateTime() {
+		return this.lastUpdateTime;
+	}
+
+	/**
+	 * Returns whether or not every split has arrived
+	 * 
+	 * @return boolean
+	 */
+	public boolean isComplete() {
+		return received == splits.length;
+	}
+
+	/**
+	 * Stores a split, splits that don't belong to this packet or that have
+	 * already arrived are ignored. Returns <code>true</code> if the split was
+	 * stored.
+	 * 
+	 * @param encapsulated
+	 * @param currentTime
+	 * @return boolean
+	 */
+	public boolean update(EncapsulatedPacket encapsulated, long currentTime) {
+		if (encapsulated.splitId != splitId || encapsulated.splitCount != splits.length
+				|| encapsulated.splitIndex < 0 || encapsulated.splitIndex >= splits.length
+				|| splits[encapsulated.splitIndex] != null) {
+			return false;
+		}
+		splits[encapsulated.splitIndex] = encapsulated;
+		this.received++;
+		this.size += encapsulated.getPayloadLength();
+		this.lastUpdateTime = currentTime;
+		return true;
+	}
+
+	/**
+	 * Puts the splits back together into the original packet, this can only
+	 * be done once every split has arrived
+	 * 
+	 * @return EncapsulatedPacket
+	 */
+	public EncapsulatedPacket assemble() {
+		if (!this.isComplete()) {
+			throw new IllegalStateException("Not every split has arrived");
+		}
+
+		// Copy payloads straight into the final payload
+		byte[] payload = new byte[size];
+		int offset = 0;
+		for (EncapsulatedPacket split : splits) {
+			int length = split.getPayloadLength();
+			System.arraycopy(split.payload, split.payloadOffset, payload, offset, length);
+			offset += length;
+		}
+
+		// Create EncapsulatedPacket
+		EncapsulatedPacket last = splits[splits.length - 1];
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.payload = payload;
+		encapsulated.reliability = last.reliability;
+		encapsulated.messageIndex = last.messageIndex;
+		encapsulated.orderChannel = last.orderChannel;
+		encapsulated.orderIndex = last.orderIndex;
+		return encapsulated;
+	}
+
+}
@@ -31,15 +31,15 @@ c *       _   _____            _      _   _          _
 package net.marfgamer.raknet.task.reliability;
 
 import net.marfgamer.raknet.RakNet;
-import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
 import net.marfgamer.raknet.server.RakNetServerHandler;
 import net.marfgamer.raknet.session.ClientSession;
 import net.marfgamer.raknet.task.TaskRunnable;
 
 /**
- * Used to make sure all packets lost are resent to the receivers. If too many
- * packets have not been acknowledged by the client it is kicked and its address
- * is blocked for ten minutes.
+ * Used to make sure all packets lost are resent to the receivers. If the send
+ * queue of a client grows past the maximum size because packets were sent
+ * faster than the client could receive them, it is kicked. The client's
+ * address is not blocked as it is not the client's fault.
  * 
  * @author Trent Summerlin
  */
@@ -53,29 +53,18 @@ public class ClientReliabilityTask implements TaskRunnable, RakNet {
 
 	@Override
 	public long getWaitTimeMillis() {
-		return 1500L;
+		return 10L;
 	}
 
 	@Override
 	public void run() {
 		for (ClientSession session : handler.getSessions()) {
-			CustomPacket[] reliablePackets = session.getReliableQueue();
-			CustomPacket[] recoveryPackets = session.getRecoveryQueue();
-			
-			// Remove unreliable packets from queue if needed
-			if(recoveryPackets.length > MAX_PACKETS_PER_QUEUE) {
-				session.cleanRecoveryQueue();
-			}
-			
-			// Make sure client is not trying to do a back-off attack
-			if (reliablePackets.length > MAX_PACKETS_PER_QUEUE || recoveryPackets.length > MAX_PACKETS_PER_QUEUE) {
+			// Only give up once producers have ignored backpressure for too long
+			if (session.getSendQueueBytes() > MAX_SEND_QUEUE_BYTES) {
 				handler.removeSession(session, "Too many packets in queue!");
-				handler.blockAddress(session.getAddress(), FIVE_MINUTES_MILLIS);
 			} else {
-				// Resend all lost packets
-				for (CustomPacket packet : reliablePackets) {
-					session.sendRaw(packet);
-				}
+				// Resend packets that have timed out
+				session.update();
 			}
 		}
 	}
@@ -32,13 +32,13 @@ package net.marfgamer.raknet.task.reliability;
 
 import net.marfgamer.raknet.RakNet;
 import net.marfgamer.raknet.client.RakNetClient;
-import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
 import net.marfgamer.raknet.session.ServerSession;
 import net.marfgamer.raknet.task.TaskRunnable;
 
 /**
- * Used to make sure all lost packets are sent back to the server. If too many
- * packets have not been acknowledged by the server the client will disconnect.
+ * Used to make sure all lost packets are sent back to the server. If the send
+ * queue grows past the maximum size because packets were sent faster than the
+ * server could receive them the client will disconnect.
  *
  * @author Trent Summerlin
  */
@@ -52,29 +52,19 @@ public class ServerReliabilityTask implements TaskRunnable, RakNet {
 
 	@Override
 	public long getWaitTimeMillis() {
-		return 1500L;
+		return 10L;
 	}
 
 	@Override
 	public void run() {
 		ServerSession session = client.getSession();
 		if (session != null) {
-			CustomPacket[] reliablePackets = session.getReliableQueue();
-			CustomPacket[] recoveryPackets = session.getRecoveryQueue();
-
-			// Remove unreliable packets from queue if needed
-			if (recoveryPackets.length > MAX_PACKETS_PER_QUEUE) {
-				session.cleanRecoveryQueue();
-			}
-
-			// Make sure the server is not trying to do a back-off attack
-			if (reliablePackets.length > MAX_PACKETS_PER_QUEUE || recoveryPackets.length > MAX_PACKETS_PER_QUEUE) {
+			// Only give up once producers have ignored backpressure for too long
+			if (session.getSendQueueBytes() > MAX_SEND_QUEUE_BYTES) {
 				client.disconnect("Too many packets in queue!");
 			} else {
-				// Resend all lost packets
-				for (CustomPacket packet : reliablePackets) {
-					session.sendRaw(packet);
-				}
+				// Resend packets that have timed out
+				session.update();
 			}
 		}
 	}
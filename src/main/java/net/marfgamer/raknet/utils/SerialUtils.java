@@ -0,0 +1,102 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet.utils;
+
+/**
+ * Used for comparing and incrementing the 24-bit sequence numbers, message
+ * indexes and order indexes used by RakNet. These numbers wrap back around to
+ * zero once they go past the largest number a triad can hold, so they are
+ * compared using serial number arithmetic where a number is newer than
+ * another if it is less than half of the number space ahead of it.
+ *
+ * @author Trent Summerlin
+ */
+public abstract class SerialUtils {
+
+	private static final int TRIAD_BITS = 24;
+	private static final int TRIAD_MASK = (1 << TRIAD_BITS) - 1;
+
+	/**
+	 * Wraps a number so it fits inside of a triad
+	 * 
+	 * @param number
+	 * @return int
+	 */
+	public static int wrap(int number) {
+		return number & TRIAD_MASK;
+	}
+
+	/**
+	 * Returns the number after the specified number, wrapping back around to
+	 * zero once the largest triad is passed
+	 * 
+	 * @param number
+	 * @return int
+	 */
+	public static int next(int number) {
+		return (number + 1) & TRIAD_MASK;
+	}
+
+	/**
+	 * Adds the amount to the specified number, the amount can be negative
+	 * 
+	 * @param number
+	 * @param amount
+	 * @return int
+	 */
+	public static int add(int number, int amount) {
+		return (number + amount) & TRIAD_MASK;
+	}
+
+	/**
+	 * Returns how far ahead the first number is of the second number, the
+	 * difference is negative if the first number is behind the second number
+	 * 
+	 * @param number
+	 * @param other
+	 * @return int
+	 */
+	public static int difference(int number, int other) {
+		return ((number - other) << (32 - TRIAD_BITS)) >> (32 - TRIAD_BITS);
+	}
+
+	/**
+	 * Returns whether or not the first number is newer than the second number
+	 * 
+	 * @param number
+	 * @param other
+	 * @return boolean
+	 */
+	public static boolean isNewer(int number, int other) {
+		return difference(number, other) > 0;
+	}
+
+}
@@ -0,0 +1,193 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet;
+
+import java.util.ArrayList;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.DatagramPacket;
+import junit.framework.TestCase;
+import net.marfgamer.raknet.exception.RakNetException;
+import net.marfgamer.raknet.protocol.Message;
+import net.marfgamer.raknet.protocol.identifier.MessageIdentifiers;
+import net.marfgamer.raknet.protocol.raknet.internal.Acknowledge;
+import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.Record;
+import net.marfgamer.raknet.session.NackQueue;
+import net.marfgamer.raknet.utils.SerialUtils;
+
+/**
+ * Used to make sure missing sequence numbers are turned into the right NACK
+ * records, and that ACK and NACK records survive being encoded and decoded
+ * and are never sent with a range too long to be decoded
+ *
+ * @author Trent Summerlin
+ */
+public class AcknowledgeTest extends TestCase {
+
+	private static final int LAST_TRIAD = 0xFFFFFF;
+	private static final int LONG_RANGE = 2000;
+
+	public void testNackRangeFill() {
+		NackQueue nackQueue = new NackQueue(64);
+		nackQueue.receive(0, 0L);
+		nackQueue.receive(11, 0L); // 1 to 10 are missing
+
+		// Fill both ends and the middle of the range
+		nackQueue.receive(1, 0L);
+		nackQueue.receive(10, 0L);
+		nackQueue.receive(5, 0L);
+		nackQueue.receive(5, 0L);
+		nackQueue.receive(12, 0L);
+		assertRecords(pollNack(nackQueue), 2, 4, 6, 9);
+
+		// Filling every missing sequence number removes the range
+		nackQueue.receive(14, 0L);
+		nackQueue.receive(13, 0L);
+		assertTrue(nackQueue.isEmpty());
+	}
+
+	public void testNackRangeLimit() {
+		NackQueue nackQueue = new NackQueue(64);
+		nackQueue.receive(0, 0L);
+		nackQueue.receive(1000, 0L);
+		assertRecords(pollNack(nackQueue), 1000 - 64, 999);
+
+		// Old ranges are forgotten once they fall out of the range
+		nackQueue.receive(1002, 0L);
+		nackQueue.receive(1100, 0L);
+		assertRecords(pollNack(nackQueue), 1100 - 64, 1099);
+	}
+
+	public void testNackDelay() {
+		NackQueue nackQueue = new NackQueue(64);
+		nackQueue.receive(0, 100L);
+		nackQueue.receive(2, 100L);
+		nackQueue.receive(4, 150L);
+		assertEquals(100L, nackQueue.getOldestTime());
+
+		ArrayList<Record> records = new ArrayList<Record>();
+		nackQueue.poll(120L, 10L, records);
+		assertRecords(records, 1, 1);
+		assertEquals(150L, nackQueue.getOldestTime());
+	}
+
+	public void testEncodeAcrossWrap() {
+		Acknowledge ack = new Acknowledge(MessageIdentifiers.ID_ACK);
+		ack.records.add(new Record(LAST_TRIAD - 10));
+		ack.records.add(new Record(LAST_TRIAD - 5, 3));
+		ack.records.add(new Record(0));
+		ack.encode();
+
+		Acknowledge decoded = decodeAcknowledge(ack);
+		assertRecords(decoded.records, LAST_TRIAD - 10, LAST_TRIAD - 10, LAST_TRIAD - 5, 3, 0, 0);
+		assertFalse(decoded.records.get(0).isRanged());
+		assertTrue(decoded.records.get(1).isRanged());
+
+		// The calculated size has to match so packets don't go over the MTU
+		int size = Acknowledge.HEADER_LENGTH;
+		for (Record record : ack.records) {
+			size += record.calculateSize();
+		}
+		assertEquals(size, ack.size());
+	}
+
+	public void testDecodedRangeCapped() {
+		Acknowledge ack = new Acknowledge(MessageIdentifiers.ID_NACK);
+		ack.records.add(new Record(LAST_TRIAD - 100, SerialUtils.add(LAST_TRIAD - 100, 100000)));
+		ack.encode();
+
+		// A range covering too many sequence numbers is cut short
+		Acknowledge decoded = decodeAcknowledge(ack);
+		assertRecords(decoded.records, LAST_TRIAD - 100,
+				SerialUtils.add(LAST_TRIAD - 100, Acknowledge.MAX_RECORD_RANGE));
+	}
+
+	public void testSentRangeSplit() throws RakNetException {
+		TestSession session = new TestSession();
+		for (int i = 0; i < LONG_RANGE; i++) {
+			CustomPacket custom = new CustomPacket();
+			custom.seqNumber = i;
+			custom.encode();
+			custom = new CustomPacket(new Message(custom.array()));
+			custom.decode();
+			session.handleCustom0(custom);
+		}
+		session.sendAcknowledge();
+
+		// Every sequence number must survive being decoded
+		int expected = 0;
+		Object datagram;
+		while ((datagram = session.channel.readOutbound()) != null) {
+			ByteBuf content = ((DatagramPacket) datagram).content();
+			byte[] data = new byte[content.readableBytes()];
+			content.getBytes(content.readerIndex(), data);
+			content.release();
+
+			Acknowledge ack = new Acknowledge(new Message(data));
+			ack.decode();
+			for (Record record : ack.records) {
+				assertEquals(expected, record.index);
+				assertTrue(SerialUtils.difference(record.endIndex, record.index) < Acknowledge.MAX_RECORD_RANGE);
+				expected = SerialUtils.next(record.endIndex);
+			}
+		}
+		assertEquals(LONG_RANGE, expected);
+	}
+
+	private static ArrayList<Record> pollNack(NackQueue nackQueue) {
+		ArrayList<Record> records = new ArrayList<Record>();
+		nackQueue.poll(0L, 0L, records);
+		return records;
+	}
+
+	private static Acknowledge decodeAcknowledge(Acknowledge ack) {
+		Acknowledge decoded = new Acknowledge(new Message(ack.array()));
+		decoded.decode();
+		return decoded;
+	}
+
+	/**
+	 * Makes sure the records match the specified start and end indexes
+	 * 
+	 * @param records
+	 * @param indexes
+	 *            the start and end index of every record
+	 */
+	private static void assertRecords(ArrayList<Record> records, int... indexes) {
+		assertEquals(indexes.length / 2, records.size());
+		for (int i = 0; i < records.size(); i++) {
+			assertEquals(indexes[i * 2], records.get(i).index);
+			assertEquals(indexes[(i * 2) + 1], records.get(i).endIndex);
+		}
+	}
+
+}
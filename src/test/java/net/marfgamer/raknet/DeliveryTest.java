@@ -0,0 +1,359 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.DatagramPacket;
+import junit.framework.TestCase;
+import net.marfgamer.raknet.exception.RakNetException;
+import net.marfgamer.raknet.exception.packet.InvalidOrderChannelException;
+import net.marfgamer.raknet.exception.packet.PacketNotAcknowledgedException;
+import net.marfgamer.raknet.protocol.Message;
+import net.marfgamer.raknet.protocol.Priority;
+import net.marfgamer.raknet.protocol.Reliability;
+import net.marfgamer.raknet.protocol.identifier.MessageIdentifiers;
+import net.marfgamer.raknet.protocol.raknet.internal.Acknowledge;
+import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+import net.marfgamer.raknet.session.BackpressurePolicy;
+
+/**
+ * Used to make sure every packet queued by a session is delivered, even when
+ * packets with a higher priority are sent ahead of packets that were queued
+ * before them, and that packets which can't be delivered are rejected
+ *
+ * @author Trent Summerlin
+ */
+public class DeliveryTest extends TestCase {
+
+	private static final int LOW_PACKETS = 2500;
+	private static final int HIGH_PACKETS = 45000;
+	private static final int ORDERED_PACKETS = 20000;
+	private static final int SPLIT_PADDING = 32000;
+
+	public void testReliableBehindHigherPriority() throws RakNetException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		for (int i = 0; i < LOW_PACKETS; i++) {
+			sender.sendPacket(Reliability.RELIABLE, Priority.LOW, createPacket(i));
+		}
+		for (int i = 0; i < HIGH_PACKETS; i++) {
+			sender.sendPacket(Reliability.RELIABLE, Priority.HIGH, createPacket(i));
+		}
+		exchange(sender, receiver);
+		assertEquals(LOW_PACKETS + HIGH_PACKETS, receiver.received.size());
+	}
+
+	public void testOrderedBehindHigherPriority() throws RakNetException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		for (int i = 0; i < LOW_PACKETS; i++) {
+			sender.sendPacket(Reliability.RELIABLE_ORDERED, Priority.LOW, createPacket(i));
+		}
+		for (int i = 0; i < HIGH_PACKETS; i++) {
+			sender.sendPacket(Reliability.RELIABLE_ORDERED, Priority.HIGH, createPacket(LOW_PACKETS + i));
+		}
+		exchange(sender, receiver);
+
+		// Packets on the same channel must arrive in the order they were sent
+		assertEquals(LOW_PACKETS + HIGH_PACKETS, receiver.received.size());
+		for (int i = 0; i < receiver.received.size(); i++) {
+			assertEquals(i, receiver.received.get(i).intValue());
+		}
+	}
+
+	public void testOrderedAfterLostPacket() throws RakNetException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		for (int i = 0; i < ORDERED_PACKETS; i++) {
+			sender.sendPacket(Reliability.RELIABLE_ORDERED, createPacket(i));
+		}
+
+		// Everything sent until the first packet is resent must be held
+		sender.flush();
+		readDatagram(sender.channel.readOutbound());
+		exchange(sender, receiver);
+		assertEquals(ORDERED_PACKETS, receiver.received.size());
+		for (int i = 0; i < receiver.received.size(); i++) {
+			assertEquals(i, receiver.received.get(i).intValue());
+		}
+	}
+
+	public void testCoalescedAfterDroppedPacket() throws RakNetException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		sender.setBackpressurePolicy(BackpressurePolicy.DROP_UNRELIABLE);
+		sender.sendCoalescedPacket(Reliability.UNRELIABLE, 0L, createPacket(1));
+
+		// Fill the queue so the packet with the other reliability is dropped
+		while (sender.isWritable()) {
+			Message packet = createPacket(-1);
+			packet.pad(1024);
+			sender.sendPacket(Reliability.RELIABLE, packet);
+		}
+		sender.sendCoalescedPacket(Reliability.UNRELIABLE_SEQUENCED, 0L, createPacket(2));
+		exchange(sender, receiver);
+		assertTrue(receiver.received.contains(1));
+
+		// A new packet with the same key must still be sent
+		sender.sendCoalescedPacket(Reliability.UNRELIABLE, 0L, createPacket(3));
+		assertEquals(1, sender.getSendQueueSize());
+		exchange(sender, receiver);
+		assertTrue(receiver.received.contains(3));
+		assertEquals(0, sender.getSendQueueBytes());
+	}
+
+	public void testCoalescedOnChannel() throws RakNetException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		sender.sendCoalescedPacket(Reliability.UNRELIABLE, 3, Priority.MEDIUM, 0L, createPacket(1));
+		sender.sendCoalescedPacket(Reliability.UNRELIABLE, 3, Priority.MEDIUM, 0L, createPacket(2));
+		sender.sendCoalescedPacket(Reliability.UNRELIABLE_SEQUENCED, 3, Priority.MEDIUM, 1L, createPacket(3));
+		sender.sendCoalescedPacket(Reliability.UNRELIABLE_SEQUENCED, 3, Priority.MEDIUM, 1L, createPacket(4));
+
+		// Only the newest packet for each key should be sent
+		assertEquals(2, sender.getSendQueueSize());
+		assertEquals(2, sender.getCoalescedPacketCount());
+		exchange(sender, receiver);
+		assertEquals(2, receiver.received.size());
+		assertTrue(receiver.received.contains(2));
+		assertTrue(receiver.received.contains(4));
+	}
+
+	public void testExpiredSplitPacket() throws RakNetException, InterruptedException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		sender.sendPacket(Reliability.RELIABLE_ORDERED, Priority.MEDIUM, createPacket(1, SPLIT_PADDING), 1L);
+		Thread.sleep(20L);
+		sender.sendPacket(Reliability.RELIABLE_ORDERED, createPacket(2));
+
+		// Every split expired, only one of them may take its order index
+		assertEquals(2, exchange(sender, receiver));
+		assertTrue(sender.getExpiredPacketCount() > 1);
+		assertEquals(1, receiver.received.size());
+		assertEquals(2, receiver.received.get(0).intValue());
+	}
+
+	public void testPartiallySentSplitPacket() throws RakNetException, InterruptedException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		sender.sendPacket(Reliability.RELIABLE_ORDERED, Priority.MEDIUM, createPacket(1, SPLIT_PADDING), 50L);
+		sender.flush();
+		assertTrue(sender.getSendQueueSize() > 0);
+		Thread.sleep(100L);
+
+		// The splits that were not sent in time must still follow the rest
+		exchange(sender, receiver);
+		assertEquals(0, sender.getExpiredPacketCount());
+		assertEquals(0, receiver.getSplitQueueSize());
+		assertEquals(1, receiver.received.size());
+		assertEquals(1, receiver.received.get(0).intValue());
+	}
+
+	public void testSplitAckReceipt() throws RakNetException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		EncapsulatedPacket packet = sender.sendPacket(Reliability.RELIABLE_WITH_ACK_RECEIPT,
+				createPacket(1, SPLIT_PADDING));
+
+		// Not every split fits in the first congestion window
+		step(sender, receiver);
+		assertTrue(sender.getSendQueueSize() + sender.getRecoveryQueueSize() > 0);
+		assertTrue(sender.acknowledged.isEmpty());
+
+		// The receipt is only acknowledged once the last split is
+		exchange(sender, receiver);
+		assertEquals(1, sender.acknowledged.size());
+		assertSame(packet, sender.acknowledged.get(0));
+		assertTrue(sender.notAcknowledged.isEmpty());
+	}
+
+	public void testLostUnreliableAckReceipt() throws RakNetException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		EncapsulatedPacket lost = sender.sendPacket(Reliability.UNRELIABLE_WITH_ACK_RECEIPT, createPacket(1));
+		sender.flush();
+		readDatagram(sender.channel.readOutbound());
+
+		// The receiver only notices the lost packet once the next one arrives
+		EncapsulatedPacket delivered = sender.sendPacket(Reliability.UNRELIABLE_WITH_ACK_RECEIPT, createPacket(2));
+		exchange(sender, receiver);
+		assertEquals(1, sender.notAcknowledged.size());
+		assertSame(lost, sender.notAcknowledged.get(0));
+		assertEquals(1, sender.acknowledged.size());
+		assertSame(delivered, sender.acknowledged.get(0));
+		assertEquals(1, receiver.received.size());
+	}
+
+	public void testConfirmedPacket() throws RakNetException {
+		TestSession sender = new TestSession();
+		TestSession receiver = new TestSession();
+		CompletableFuture<EncapsulatedPacket> future = sender.sendPacketConfirmed(Reliability.RELIABLE,
+				createPacket(1, SPLIT_PADDING));
+		exchange(sender, receiver);
+		assertTrue(future.isDone());
+		assertFalse(future.isCompletedExceptionally());
+	}
+
+	public void testConfirmedPacketDeadline() throws RakNetException, InterruptedException {
+		TestSession sender = new TestSession();
+		CompletableFuture<EncapsulatedPacket> future = sender.sendPacketConfirmed(Reliability.RELIABLE,
+				Priority.MEDIUM, createPacket(1), 10L);
+		sender.flush();
+		readDatagram(sender.channel.readOutbound());
+
+		// The future can only fail once the deadline has passed
+		sender.update();
+		assertFalse(future.isDone());
+		Thread.sleep(50L);
+		sender.update();
+		assertNotAcknowledged(future);
+	}
+
+	public void testConfirmedPacketClosed() throws RakNetException {
+		TestSession sender = new TestSession();
+		CompletableFuture<EncapsulatedPacket> future = sender.sendPacketConfirmed(Reliability.RELIABLE,
+				createPacket(1));
+		sender.flush();
+		sender.close();
+		assertNotAcknowledged(future);
+	}
+
+	public void testInvalidOrderChannel() throws RakNetException {
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = Reliability.RELIABLE_ORDERED;
+		encapsulated.orderChannel = 200;
+		encapsulated.payload = createPacket(0).array();
+
+		CustomPacket custom = new CustomPacket();
+		custom.packets.add(encapsulated);
+		custom.encode();
+		custom = new CustomPacket(new Message(custom.array()));
+		custom.decode();
+		assertEquals(200, custom.packets.get(0).orderChannel);
+		try {
+			new TestSession().handleCustom0(custom);
+			fail("Packet with an invalid order channel was handled");
+		} catch (InvalidOrderChannelException e) {
+			// Expected
+		}
+	}
+
+	private static void assertNotAcknowledged(CompletableFuture<EncapsulatedPacket> future) {
+		assertTrue(future.isDone());
+		try {
+			future.get();
+			fail("Packet was confirmed without being acknowledged");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof PacketNotAcknowledgedException);
+		} catch (InterruptedException e) {
+			fail("Interrupted while waiting for the future");
+		}
+	}
+
+	private static Message createPacket(int index) {
+		Message packet = new Message(0xFE);
+		packet.putInt(index);
+		return packet;
+	}
+
+	private static Message createPacket(int index, int padding) {
+		Message packet = createPacket(index);
+		packet.pad(padding);
+		return packet;
+	}
+
+	/**
+	 * Sends everything queued by the sender to the receiver and the
+	 * receiver's acknowledgements back, until the sender has nothing left to
+	 * send, returns how many packets were sent to the receiver
+	 * 
+	 * @param sender
+	 * @param receiver
+	 * @return int
+	 * @throws RakNetException
+	 */
+	private static int exchange(TestSession sender, TestSession receiver) throws RakNetException {
+		int sent = 0;
+		while (sender.getSendQueueSize() > 0 || sender.getRecoveryQueueSize() > 0) {
+			sent += step(sender, receiver);
+		}
+		return sent;
+	}
+
+	/**
+	 * Flushes the sender once, then sends what was flushed to the receiver
+	 * and the receiver's acknowledgements back, returns how many packets were
+	 * sent to the receiver
+	 * 
+	 * @param sender
+	 * @param receiver
+	 * @return int
+	 * @throws RakNetException
+	 */
+	private static int step(TestSession sender, TestSession receiver) throws RakNetException {
+		int sent = 0;
+		sender.flush();
+		Object datagram;
+		while ((datagram = sender.channel.readOutbound()) != null) {
+			CustomPacket custom = new CustomPacket(new Message(readDatagram(datagram)));
+			custom.decode();
+			receiver.handleCustom0(custom);
+			sent += custom.packets.size();
+		}
+
+		// Send the ACKs and any NACKs that are now due
+		receiver.channel.runPendingTasks();
+		receiver.sendAcknowledge();
+		while ((datagram = receiver.channel.readOutbound()) != null) {
+			Acknowledge ack = new Acknowledge(new Message(readDatagram(datagram)));
+			ack.decode();
+			if (ack.getId() == MessageIdentifiers.ID_ACK) {
+				sender.handleAck(ack);
+			} else {
+				sender.handleNack(ack);
+			}
+		}
+		return sent;
+	}
+
+	private static byte[] readDatagram(Object datagram) {
+		ByteBuf content = ((DatagramPacket) datagram).content();
+		byte[] data = new byte[content.readableBytes()];
+		content.getBytes(content.readerIndex(), data);
+		content.release();
+		return data;
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import junit.framework.TestCase;
+import net.marfgamer.raknet.exception.RakNetException;
+import net.marfgamer.raknet.protocol.Message;
+import net.marfgamer.raknet.protocol.Reliability;
+import net.marfgamer.raknet.protocol.identifier.MessageIdentifiers;
+import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.ParityPacket;
+import net.marfgamer.raknet.session.ParityDecoder;
+import net.marfgamer.raknet.session.ParityEncoder;
+
+/**
+ * Used to make sure lost <code>CustomPackets</code> can be rebuilt from the
+ * parity packets sent while forward error correction is enabled
+ *
+ * @author Trent Summerlin
+ */
+public class ParityTest extends TestCase {
+
+	private static final int GROUP_SIZE = 4;
+
+	public void testRecoverEachPacket() {
+		for (int lost = 0; lost < GROUP_SIZE; lost++) {
+			ParityEncoder encoder = new ParityEncoder(GROUP_SIZE, TestSession.MAXIMUM_TRANSFER_UNIT);
+			ParityDecoder decoder = new ParityDecoder(RakNet.PARITY_HISTORY_SIZE);
+			byte[][] sent = new byte[GROUP_SIZE][];
+			ParityPacket parity = null;
+			for (int i = 0; i < GROUP_SIZE; i++) {
+				CustomPacket custom = createCustom(1000 + i, 50 + (i * 173));
+				sent[i] = custom.array();
+				if (encoder.add(custom)) {
+					parity = encoder.finish();
+				}
+				if (i != lost) {
+					decoder.store(decodeCustom(sent[i]));
+				}
+			}
+			assertNotNull(parity);
+
+			ParityPacket received = decodeParity(parity.array());
+			assertEquals(1, decoder.getMissing(received));
+			assertTrue(Arrays.equals(sent[lost], decoder.recover(received)));
+		}
+	}
+
+	public void testTwoLostPackets() {
+		ParityEncoder encoder = new ParityEncoder(GROUP_SIZE, TestSession.MAXIMUM_TRANSFER_UNIT);
+		ParityDecoder decoder = new ParityDecoder(RakNet.PARITY_HISTORY_SIZE);
+		ParityPacket parity = null;
+		for (int i = 0; i < GROUP_SIZE; i++) {
+			CustomPacket custom = createCustom(i, 100);
+			if (encoder.add(custom)) {
+				parity = encoder.finish();
+			}
+			if (i >= 2) {
+				decoder.store(decodeCustom(custom.array()));
+			}
+		}
+
+		ParityPacket received = decodeParity(parity.array());
+		assertEquals(2, decoder.getMissing(received));
+		assertNull(decoder.recover(received));
+	}
+
+	public void testSendPath() throws RakNetException {
+		ArrayList<byte[]> datagrams = new ArrayList<byte[]>();
+		TestSession sender = new TestSession(new EmbeddedChannel(new ReleasingHandler(datagrams)));
+		sender.setParityGroupSize(GROUP_SIZE);
+		for (int i = 0; i < GROUP_SIZE * 2; i++) {
+			Message packet = new Message(0xFE);
+			packet.putInt(i);
+			sender.sendPacket(Reliability.UNRELIABLE, packet);
+			sender.flush();
+		}
+		assertEquals((GROUP_SIZE + 1) * 2, datagrams.size());
+
+		// The first group only starts the decoder, lose a packet in the second
+		int lost = GROUP_SIZE + 1 + 2;
+		TestSession receiver = new TestSession();
+		for (int i = 0; i < datagrams.size(); i++) {
+			byte[] datagram = datagrams.get(i);
+			if (i == lost) {
+				continue;
+			} else if ((datagram[0] & 0xFF) == MessageIdentifiers.ID_PARITY) {
+				receiver.handleParity(decodeParity(datagram));
+			} else {
+				receiver.handleCustom0(decodeCustom(datagram));
+			}
+		}
+		assertEquals(1, receiver.getRecoveredPacketCount());
+		assertEquals(GROUP_SIZE * 2, receiver.received.size());
+		assertTrue(receiver.received.contains(GROUP_SIZE + 2));
+	}
+
+	/**
+	 * Creates an encoded <code>CustomPacket</code> with a single unreliable
+	 * packet of the specified size
+	 * 
+	 * @param seqNumber
+	 * @param size
+	 * @return CustomPacket
+	 */
+	private static CustomPacket createCustom(int seqNumber, int size) {
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = Reliability.UNRELIABLE;
+		encapsulated.payload = new byte[size];
+		encapsulated.payloadLength = size;
+		for (int i = 0; i < size; i++) {
+			encapsulated.payload[i] = (byte) (seqNumber * 31 + i);
+		}
+
+		CustomPacket custom = new CustomPacket();
+		custom.seqNumber = seqNumber;
+		custom.packets.add(encapsulated);
+		custom.encode();
+		return custom;
+	}
+
+	private static CustomPacket decodeCustom(byte[] data) {
+		CustomPacket custom = new CustomPacket(new Message(data));
+		custom.decode();
+		return custom;
+	}
+
+	private static ParityPacket decodeParity(byte[] data) {
+		ParityPacket parity = new ParityPacket(new Message(data));
+		parity.decode();
+		return parity;
+	}
+
+	/**
+	 * Copies every datagram written and then releases it completely, so the
+	 * session can't read a packet after handing it to the channel
+	 *
+	 * @author Trent Summerlin
+	 */
+	private static class ReleasingHandler extends ChannelHandlerAdapter {
+
+		private final ArrayList<byte[]> datagrams;
+
+		public ReleasingHandler(ArrayList<byte[]> datagrams) {
+			this.datagrams = datagrams;
+		}
+
+		@Override
+		public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+			ByteBuf content = ((DatagramPacket) msg).content();
+			byte[] datagram = new byte[content.readableBytes()];
+			content.getBytes(content.readerIndex(), datagram);
+			datagrams.add(datagram);
+			content.release(content.refCnt());
+			promise.setSuccess();
+		}
+
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet;
+
+import junit.framework.TestCase;
+import net.marfgamer.raknet.protocol.Priority;
+import net.marfgamer.raknet.protocol.Reliability;
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+import net.marfgamer.raknet.session.SendQueue;
+
+/**
+ * Used to make sure the send queue shares the sending capacity between order
+ * channels and priorities the way it should
+ *
+ * @author Trent Summerlin
+ */
+public class SendQueueTest extends TestCase {
+
+	private static final int PACKETS = 2000;
+	private static final int POLLS = 1500;
+
+	public void testChannelWeightShares() {
+		assertEquals(1.0D, this.pollShare(1), 0.1D);
+		assertEquals(4.0D, this.pollShare(4), 0.4D);
+		assertEquals(16.0D, this.pollShare(16), 1.6D);
+	}
+
+	public void testUnusedShareRedistributed() {
+		SendQueue queue = new SendQueue();
+		queue.setWeight(1, RakNet.MAX_CHANNEL_WEIGHT);
+		for (int i = 0; i < PACKETS; i++) {
+			queue.add(createPacket(Reliability.UNRELIABLE, 0, 100), Priority.MEDIUM);
+		}
+
+		// Channel 1 has nothing to send, so channel 0 gets everything
+		for (int i = 0; i < PACKETS; i++) {
+			assertEquals(0, queue.poll().orderChannel);
+		}
+		assertTrue(queue.isEmpty());
+		assertEquals(0, queue.bytes());
+	}
+
+	public void testPriorityStrideOrder() {
+		SendQueue queue = new SendQueue();
+		Priority[] priorities = new Priority[] { Priority.LOW, Priority.MEDIUM, Priority.HIGH };
+		for (int i = 0; i < PACKETS; i++) {
+			for (Priority priority : priorities) {
+				// The payload length is used to tell the priorities apart
+				queue.add(createPacket(Reliability.UNRELIABLE, 0, priority.ordinal()), priority);
+			}
+		}
+		assertEquals(PACKETS, queue.size(Priority.HIGH));
+
+		// Every priority gets a share of the packets based on its weight
+		int rounds = 10;
+		int[] polled = new int[Priority.values().length];
+		int total = Priority.HIGH.getWeight() + Priority.MEDIUM.getWeight() + Priority.LOW.getWeight();
+		for (int i = 0; i < total * rounds; i++) {
+			polled[queue.poll().getPayloadLength()]++;
+		}
+		for (Priority priority : priorities) {
+			assertEquals(priority.getWeight() * rounds, polled[priority.ordinal()], 1);
+		}
+		assertEquals(PACKETS - (Priority.HIGH.getWeight() * rounds), queue.size(Priority.HIGH), 1);
+	}
+
+	public void testResendAndImmediateFirst() {
+		SendQueue queue = new SendQueue();
+		EncapsulatedPacket high = createPacket(Reliability.RELIABLE, 0, 1);
+		EncapsulatedPacket immediate = createPacket(Reliability.RELIABLE, 5, 2);
+		EncapsulatedPacket resend = createPacket(Reliability.RELIABLE, 3, 3);
+		queue.add(high, Priority.HIGH);
+		queue.add(immediate, Priority.IMMEDIATE);
+		queue.resend(resend);
+		assertEquals(3, queue.size());
+		assertEquals(1, queue.resendSize());
+
+		assertSame(resend, queue.peek());
+		assertSame(resend, queue.poll());
+		assertSame(immediate, queue.poll());
+		assertSame(high, queue.poll());
+		assertNull(queue.poll());
+	}
+
+	public void testOrderedStayInOrder() {
+		SendQueue queue = new SendQueue();
+		EncapsulatedPacket first = createPacket(Reliability.RELIABLE_ORDERED, 0, 1);
+		EncapsulatedPacket second = createPacket(Reliability.RELIABLE_ORDERED, 0, 2);
+		EncapsulatedPacket unordered = createPacket(Reliability.RELIABLE, 0, 3);
+		queue.add(first, Priority.LOW);
+		queue.add(second, Priority.IMMEDIATE);
+		queue.add(unordered, Priority.HIGH);
+
+		// Only the unordered packet can go ahead of the first ordered packet
+		assertSame(unordered, queue.poll());
+		assertSame(first, queue.poll());
+		assertSame(second, queue.poll());
+	}
+
+	/**
+	 * Fills channel 0 with larger packets than channel 1 and gives channel 1
+	 * the specified weight, then returns how many times more bytes channel 1
+	 * was able to send than channel 0
+	 * 
+	 * @param weight
+	 * @return double
+	 */
+	private double pollShare(int weight) {
+		SendQueue queue = new SendQueue();
+		queue.setWeight(1, weight);
+		for (int i = 0; i < PACKETS; i++) {
+			queue.add(createPacket(Reliability.RELIABLE_ORDERED, 0, 400), Priority.MEDIUM);
+			queue.add(createPacket(Reliability.RELIABLE_ORDERED, 1, 100), Priority.MEDIUM);
+		}
+
+		long[] bytes = new long[2];
+		for (int i = 0; i < POLLS; i++) {
+			EncapsulatedPacket encapsulated = queue.poll();
+			bytes[encapsulated.orderChannel] += encapsulated.calculateSize();
+		}
+		return (double) bytes[1] / (double) bytes[0];
+	}
+
+	private static EncapsulatedPacket createPacket(Reliability reliability, int orderChannel, int length) {
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = reliability;
+		encapsulated.orderChannel = orderChannel;
+		encapsulated.payload = new byte[length];
+		return encapsulated;
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import net.marfgamer.raknet.protocol.Reliability;
+import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.Record;
+import net.marfgamer.raknet.session.NackQueue;
+import net.marfgamer.raknet.session.OrderingQueue;
+import net.marfgamer.raknet.session.ReceiveWindow;
+import net.marfgamer.raknet.session.SendWindow;
+import net.marfgamer.raknet.utils.SerialUtils;
+
+/**
+ * Used to make sure sequence numbers, message indexes and order indexes keep
+ * working after they wrap back around to zero
+ *
+ * @author Trent Summerlin
+ */
+public class SerialNumberTest extends TestCase {
+
+	private static final int LAST_TRIAD = 0xFFFFFF;
+	private static final int START = LAST_TRIAD - 100;
+
+	public void testArithmetic() {
+		assertEquals(0, SerialUtils.next(LAST_TRIAD));
+		assertEquals(LAST_TRIAD, SerialUtils.add(0, -1));
+		assertEquals(1, SerialUtils.difference(0, LAST_TRIAD));
+		assertEquals(-1, SerialUtils.difference(LAST_TRIAD, 0));
+		assertEquals(10, SerialUtils.difference(5, LAST_TRIAD - 4));
+		assertTrue(SerialUtils.isNewer(0, LAST_TRIAD));
+		assertFalse(SerialUtils.isNewer(LAST_TRIAD, 0));
+		assertFalse(SerialUtils.isNewer(7, 7));
+	}
+
+	public void testReceiveWindow() {
+		ReceiveWindow window = new ReceiveWindow(64);
+		int number = 0;
+		while (number != START) {
+			window.receive(number);
+			number++;
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(window.receive(number));
+			assertFalse(window.receive(number));
+			number = SerialUtils.next(number);
+		}
+		assertFalse(window.receive(SerialUtils.add(number, -1)));
+		assertFalse(window.receive(SerialUtils.add(number, -500)));
+	}
+
+	public void testNackQueue() {
+		NackQueue nackQueue = new NackQueue(64);
+		int number = 0;
+		while (number != START) {
+			nackQueue.receive(number, 0L);
+			number++;
+		}
+		for (int i = 0; i < 98; i++) {
+			nackQueue.receive(number, 0L);
+			number = SerialUtils.next(number);
+		}
+		assertTrue(nackQueue.isEmpty());
+
+		// Skip over the wrap boundary and fill part of the gap afterwards
+		assertEquals(LAST_TRIAD - 2, number);
+		nackQueue.receive(3, 0L);
+		nackQueue.receive(0, 0L);
+		ArrayList<Record> missing = new ArrayList<Record>();
+		nackQueue.poll(0L, 0L, missing);
+		assertEquals(2, missing.size());
+		assertEquals(LAST_TRIAD - 2, missing.get(0).index);
+		assertEquals(LAST_TRIAD, missing.get(0).endIndex);
+		assertEquals(1, missing.get(1).index);
+		assertEquals(2, missing.get(1).endIndex);
+	}
+
+	public void testOrderingQueue() {
+		OrderingQueue ordering = new OrderingQueue(256);
+		int orderIndex = 0;
+		while (ordering.getOrderIndex() != START) {
+			assertTrue(ordering.offer(this.createOrdered(orderIndex)));
+			orderIndex = SerialUtils.next(orderIndex);
+		}
+
+		// Offer packets across the wrap boundary in reverse
+		for (int i = 9; i >= 1; i--) {
+			assertFalse(ordering.offer(this.createOrdered(SerialUtils.add(START, i * 20))));
+		}
+		assertTrue(ordering.isOverflowing(SerialUtils.add(START, 256)));
+		assertFalse(ordering.isOverflowing(SerialUtils.add(START, 255)));
+		for (int i = 0; i < 200; i++) {
+			if (i % 20 == 0 && i > 0) {
+				assertEquals(SerialUtils.add(START, i), ordering.poll().orderIndex);
+			} else {
+				assertTrue(ordering.offer(this.createOrdered(SerialUtils.add(START, i))));
+			}
+		}
+		assertEquals(SerialUtils.add(START, 200), ordering.getOrderIndex());
+		assertFalse(ordering.offer(this.createOrdered(LAST_TRIAD)));
+	}
+
+	public void testSendWindow() {
+		SendWindow window = new SendWindow(4);
+		int seqNumber = START;
+		for (int i = 0; i < 200; i++) {
+			CustomPacket custom = new CustomPacket();
+			custom.seqNumber = seqNumber;
+			window.add(custom, true, 0L);
+			seqNumber = SerialUtils.next(seqNumber);
+		}
+		assertEquals(200, window.getSize());
+		assertEquals(START, window.getFirst());
+		assertEquals(seqNumber, window.getEnd());
+		assertTrue(window.contains(LAST_TRIAD));
+		assertTrue(window.contains(0));
+		assertFalse(window.contains(seqNumber));
+
+		// Remove everything across the wrap boundary
+		for (int i = 0; i < 200; i++) {
+			assertNotNull(window.remove(SerialUtils.add(START, i)));
+		}
+		assertEquals(0, window.getSize());
+		assertEquals(seqNumber, window.getFirst());
+	}
+
+	/**
+	 * Creates a reliable ordered packet with the specified order index
+	 * 
+	 * @param orderIndex
+	 * @return EncapsulatedPacket
+	 */
+	private EncapsulatedPacket createOrdered(int orderIndex) {
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = Reliability.RELIABLE_ORDERED;
+		encapsulated.orderIndex = orderIndex;
+		return encapsulated;
+	}
+
+}
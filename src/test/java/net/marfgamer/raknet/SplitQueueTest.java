@@ -0,0 +1,165 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.marfgamer.raknet.exception.RakNetException;
+import net.marfgamer.raknet.protocol.Reliability;
+import net.marfgamer.raknet.protocol.raknet.internal.CustomPacket;
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+import net.marfgamer.raknet.session.SplitPacket;
+
+/**
+ * Used to make sure split packets are put back together correctly, and that
+ * split packets waiting for the rest of their splits stay within the split
+ * budget of a session
+ *
+ * @author Trent Summerlin
+ */
+public class SplitQueueTest extends TestCase implements RakNet {
+
+	private int seqNumber;
+
+	public void testAssemble() {
+		byte[] payload = new byte[1000];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = (byte) i;
+		}
+		EncapsulatedPacket packet = new EncapsulatedPacket();
+		packet.reliability = Reliability.RELIABLE_ORDERED;
+		packet.orderChannel = 3;
+		packet.orderIndex = 42;
+		packet.payload = payload;
+		EncapsulatedPacket[] splits = EncapsulatedPacket.split(packet, 300, 9);
+
+		// Splits can arrive in any order
+		SplitPacket split = new SplitPacket(splits[0]);
+		for (int i = splits.length - 1; i >= 0; i--) {
+			assertFalse(split.isComplete());
+			assertTrue(split.update(splits[i], i));
+		}
+		assertTrue(split.isComplete());
+		assertEquals(payload.length, split.getSize());
+
+		EncapsulatedPacket assembled = split.assemble();
+		assertTrue(Arrays.equals(payload, assembled.payload));
+		assertEquals(Reliability.RELIABLE_ORDERED, assembled.reliability);
+		assertEquals(3, assembled.orderChannel);
+		assertEquals(42, assembled.orderIndex);
+	}
+
+	public void testInvalidSplitsIgnored() {
+		EncapsulatedPacket packet = new EncapsulatedPacket();
+		packet.reliability = Reliability.UNRELIABLE;
+		packet.payload = new byte[1000];
+		EncapsulatedPacket[] splits = EncapsulatedPacket.split(packet, 300, 9);
+		SplitPacket split = new SplitPacket(splits[0]);
+		assertTrue(split.update(splits[0], 0L));
+		assertFalse(split.update(splits[0], 0L));
+
+		// Splits from another packet or with a different split count
+		splits[1].splitId = 10;
+		assertFalse(split.update(splits[1], 0L));
+		splits[1].splitId = 9;
+		splits[1].splitCount++;
+		assertFalse(split.update(splits[1], 0L));
+		splits[1].splitCount--;
+		splits[1].splitIndex = splits.length;
+		assertFalse(split.update(splits[1], 0L));
+		assertEquals(1, split.getReceived());
+
+		try {
+			split.assemble();
+			fail("Incomplete split packet was assembled");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	public void testOverheadCharged() throws RakNetException {
+		TestSession session = new TestSession();
+		this.receiveSplit(session, Reliability.UNRELIABLE, 0, 0, MAX_SPLIT_COUNT, 0);
+		assertEquals(MAX_SPLIT_COUNT * SPLIT_SLOT_OVERHEAD, session.getSplitQueueSize());
+
+		// Splits that don't belong to any split packet are not kept
+		this.receiveSplit(session, Reliability.UNRELIABLE, 1, MAX_SPLIT_COUNT, MAX_SPLIT_COUNT, 0);
+		assertEquals(MAX_SPLIT_COUNT * SPLIT_SLOT_OVERHEAD, session.getSplitQueueSize());
+	}
+
+	public void testEmptySplitsStayWithinBudget() throws RakNetException {
+		TestSession session = new TestSession();
+		for (int splitId = 0; splitId <= 0xFFFF; splitId++) {
+			this.receiveSplit(session, Reliability.UNRELIABLE, splitId, 0, MAX_SPLIT_COUNT, 0);
+			assertTrue(session.getSplitQueueSize() <= session.getSplitBudget());
+		}
+		assertTrue(session.getEvictedSplitCount() > 0);
+	}
+
+	public void testSplitsReassembled() throws RakNetException {
+		TestSession session = new TestSession();
+		this.receiveSplit(session, Reliability.RELIABLE, 7, 1, 2, 100);
+		assertEquals(100 + (2 * SPLIT_SLOT_OVERHEAD), session.getSplitQueueSize());
+		this.receiveSplit(session, Reliability.RELIABLE, 7, 0, 2, 100);
+		assertEquals(0, session.getSplitQueueSize());
+		assertEquals(1, session.received.size());
+	}
+
+	/**
+	 * Handles a datagram containing a single split with the specified data
+	 * 
+	 * @param session
+	 * @param reliability
+	 * @param splitId
+	 * @param splitIndex
+	 * @param splitCount
+	 * @param length
+	 * @throws RakNetException
+	 */
+	private void receiveSplit(TestSession session, Reliability reliability, int splitId, int splitIndex,
+			int splitCount, int length) throws RakNetException {
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = reliability;
+		encapsulated.messageIndex = seqNumber;
+		encapsulated.split = true;
+		encapsulated.splitId = splitId;
+		encapsulated.splitIndex = splitIndex;
+		encapsulated.splitCount = splitCount;
+		encapsulated.payload = new byte[length];
+
+		CustomPacket custom = new CustomPacket();
+		custom.seqNumber = seqNumber++;
+		custom.packets.add(encapsulated);
+		session.handleCustom0(custom);
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ *       _   _____            _      _   _          _   
+ *      | | |  __ \          | |    | \ | |        | |  
+ *      | | | |__) |   __ _  | | __ |  \| |   ___  | |_ 
+ *  _   | | |  _  /   / _` | | |/ / | . ` |  / _ \ | __|
+ * | |__| | | | \ \  | (_| | |   <  | |\  | |  __/ | |_ 
+ *  \____/  |_|  \_\  \__,_| |_|\_\ |_| \_|  \___|  \__|
+ *                                                  
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Trent Summerlin
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.  
+ */
+package net.marfgamer.raknet;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.marfgamer.raknet.protocol.raknet.internal.EncapsulatedPacket;
+import net.marfgamer.raknet.session.RakNetSession;
+
+/**
+ * A session used by the tests that writes to an
+ * <code>EmbeddedChannel</code> and keeps track of the packets it has
+ * received and the ACK receipts of the packets it has sent, every packet sent
+ * to it is expected to start with an int
+ *
+ * @author Trent Summerlin
+ */
+public class TestSession extends RakNetSession {
+
+	public static final short MAXIMUM_TRANSFER_UNIT = 1464;
+
+	public final EmbeddedChannel channel;
+	public final ArrayList<Integer> received;
+	public final ArrayList<EncapsulatedPacket> acknowledged;
+	public final ArrayList<EncapsulatedPacket> notAcknowledged;
+
+	public TestSession(EmbeddedChannel channel) {
+		super(channel, new InetSocketAddress("127.0.0.1", 19132));
+		this.channel = channel;
+		this.received = new ArrayList<Integer>();
+		this.acknowledged = new ArrayList<EncapsulatedPacket>();
+		this.notAcknowledged = new ArrayList<EncapsulatedPacket>();
+		this.setMaximumTransferUnit(MAXIMUM_TRANSFER_UNIT);
+	}
+
+	public TestSession() {
+		this(new EmbeddedChannel());
+	}
+
+	@Override
+	public void handleEncapsulated(EncapsulatedPacket encapsulated) {
+		received.add(encapsulated.convertPayload().getInt());
+	}
+
+	@Override
+	public void onAcknowledge(EncapsulatedPacket encapsulated) {
+		acknowledged.add(encapsulated);
+	}
+
+	@Override
+	public void onNotAcknowledge(EncapsulatedPacket encapsulated) {
+		notAcknowledged.add(encapsulated);
+	}
+
+	@Override
+	public void onWritabilityChanged(boolean writable) {
+	}
+
+}